@@ -0,0 +1,27 @@
+package de.eome.guide.json.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar.
+ * Runs the selected benchmarks with the GC profiler attached, so allocation rates are reported next to the timings.
+ * Accepts the regular JMH command line options, e.g., a benchmark name pattern or <code>-p stepCount=1000</code>.
+ */
+public final class BenchmarkRunner {
+    
+    private BenchmarkRunner() {};
+    
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+}
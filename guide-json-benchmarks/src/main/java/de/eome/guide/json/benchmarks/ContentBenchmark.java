@@ -0,0 +1,66 @@
+package de.eome.guide.json.benchmarks;
+
+import de.eome.guide.json.Content;
+import de.eome.guide.json.util.GuideUtil;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for parsing and exporting content descriptors through {@link GuideUtil}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentBenchmark {
+    @Param({"1", "10", "100"})
+    private int messageCount;
+    
+    private Content content;
+    private String contentString;
+    private File contentFile;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        content = GuideFixtures.createContent(messageCount);
+        contentString = GuideUtil.exportContent(content, false);
+        contentFile = File.createTempFile("content-" + messageCount + "-", ".json");
+        GuideUtil.writeContent(content, contentFile, false);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contentFile.delete();
+    }
+    
+    @Benchmark
+    public Content readContentFromString() {
+        return GuideUtil.readContent(contentString);
+    }
+    
+    @Benchmark
+    public Content readContentFromFile() {
+        return GuideUtil.readContent(contentFile);
+    }
+    
+    @Benchmark
+    public String exportContent() throws IOException {
+        return GuideUtil.exportContent(content, false);
+    }
+}
@@ -0,0 +1,111 @@
+package de.eome.guide.json.benchmarks;
+
+import de.eome.guide.json.Action;
+import de.eome.guide.json.Chapter;
+import de.eome.guide.json.Content;
+import de.eome.guide.json.Guide;
+import de.eome.guide.json.IconizedMessage;
+import de.eome.guide.json.Media;
+import de.eome.guide.json.Milestone;
+import de.eome.guide.json.Option;
+import de.eome.guide.json.Step;
+import de.eome.guide.json.UserRequest;
+
+/**
+ * Generates synthetic guides and contents of a given size for the benchmarks.
+ */
+public final class GuideFixtures {
+    
+    private GuideFixtures() {};
+    
+    /**
+     * Creates a guide with the given number of steps.
+     * The steps cycle through actions, milestones, chapters and user requests with two options each, every step has content ids for two languages.
+     * @param stepCount Number of steps to generate.
+     * @return Generated guide.
+     */
+    public static Guide createGuide(int stepCount) {
+        Guide guide = new Guide("guide-" + stepCount);
+        guide.setContentId("de-DE", "content-guide-de");
+        guide.setContentId("en-GB", "content-guide-en");
+        guide.addCustomTag("benchmark");
+        guide.addTypedTag("maintenance");
+        guide.grantAllAccess();
+        for (int i = 0; i < 20; i++) {
+            guide.grantUserAccess("user-" + i);
+            guide.grantGroupAccess("group-" + i);
+        }
+        for (int i = 0; i < stepCount; i++) {
+            guide.addStep(createStep(i, stepCount));
+        }
+        return guide;
+    }
+    
+    /**
+     * Creates the step with the given index of a generated guide.
+     * @param index Index of the step.
+     * @param stepCount Total number of steps of the guide.
+     * @return Generated step.
+     */
+    public static Step createStep(int index, int stepCount) {
+        String id = stepId(index);
+        Step step;
+        switch (index % 4) {
+            case 0:
+                step = new Action(id);
+                break;
+            case 1:
+                step = new Milestone(id);
+                break;
+            case 2:
+                step = new Chapter(id, "guide-chapter-" + index);
+                break;
+            default:
+                UserRequest userRequest = new UserRequest(id);
+                for (int o = 0; o < 2; o++) {
+                    Option option = new Option();
+                    option.setContentId("de-DE", "content-" + id + "-option-" + o + "-de");
+                    option.setNext(stepId((index + o + 1) % stepCount));
+                    userRequest.addOption(option);
+                }
+                step = userRequest;
+        }
+        step.setContentId("de-DE", "content-" + id + "-de");
+        step.setContentId("en-GB", "content-" + id + "-en");
+        if (index + 1 < stepCount) {
+            step.setNext(stepId(index + 1));
+        }
+        return step;
+    }
+    
+    /**
+     * Returns the identifier of the step with the given index of a generated guide.
+     * @param index Index of the step.
+     * @return Step identifier.
+     */
+    public static String stepId(int index) {
+        return "step-" + index;
+    }
+    
+    /**
+     * Creates a content descriptor with media, warnings and hints.
+     * @param messageCount Number of warnings and hints each.
+     * @return Generated content.
+     */
+    public static Content createContent(int messageCount) {
+        Content content = new Content("content-" + messageCount);
+        content.setLanguageId("de-DE");
+        content.setTitle("Benchmark content");
+        content.setDescription("Generated content descriptor with " + messageCount + " warnings and hints.");
+        content.setMedia(new Media("video/mp4", "media/benchmark.mp4"));
+        for (int i = 0; i < messageCount; i++) {
+            IconizedMessage warning = new IconizedMessage("Warning " + i);
+            warning.setIcon("icons/warning.png");
+            content.addWarning(warning);
+            IconizedMessage hint = new IconizedMessage("Hint " + i);
+            hint.setIcon("icons/hint.png");
+            content.addHint(hint);
+        }
+        return content;
+    }
+}
@@ -0,0 +1,99 @@
+package de.eome.guide.json.benchmarks;
+
+import de.eome.guide.json.Action;
+import de.eome.guide.json.Guide;
+import de.eome.guide.json.Step;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the mutation and lookup hot paths of {@link Guide}.
+ * Mutating benchmarks revert their change within the same invocation, so the guide keeps its size over the whole trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GuideMutationBenchmark {
+    @Param({"10", "1000", "50000"})
+    private int stepCount;
+    
+    private Guide guide;
+    private String firstStepId;
+    private String lastStepId;
+    private int middleIndex;
+    private List<String> userGroups;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        guide = GuideFixtures.createGuide(stepCount);
+        firstStepId = GuideFixtures.stepId(0);
+        lastStepId = GuideFixtures.stepId(stepCount - 1);
+        middleIndex = stepCount / 2;
+        userGroups = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            userGroups.add("other-group-" + i);
+        }
+        userGroups.add("group-19");
+    }
+    
+    @Benchmark
+    public Step getFirstStep() {
+        return guide.getStep(firstStepId);
+    }
+    
+    @Benchmark
+    public Step getLastStep() {
+        return guide.getStep(lastStepId);
+    }
+    
+    @Benchmark
+    public int indexOfLastStep() {
+        return guide.indexOfStep(lastStepId);
+    }
+    
+    @Benchmark
+    public Step addAndRemoveStepAtEnd() {
+        guide.addStep(new Action("benchmark-step"));
+        return guide.removeStep("benchmark-step");
+    }
+    
+    @Benchmark
+    public Step addAndRemoveStepInMiddle() {
+        guide.addStep(middleIndex, new Action("benchmark-step"));
+        return guide.removeStep("benchmark-step");
+    }
+    
+    @Benchmark
+    public boolean grantAndRevokeUserAccess() {
+        guide.grantUserAccess("benchmark-user");
+        boolean hasAccess = guide.hasUserAccess("benchmark-user");
+        guide.revokeUserAccess("benchmark-user");
+        return hasAccess;
+    }
+    
+    @Benchmark
+    public boolean hasGroupAccess() {
+        return guide.hasGroupAccess("group-19");
+    }
+    
+    @Benchmark
+    public boolean canAccessViaGroups() {
+        return guide.canAccess("benchmark-user", userGroups);
+    }
+}
@@ -0,0 +1,94 @@
+package de.eome.guide.json.benchmarks;
+
+import de.eome.guide.json.Guide;
+import de.eome.guide.json.util.DataFormat;
+import de.eome.guide.json.util.GuideUtil;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for reading and exporting guides through {@link GuideUtil}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GuideUtilBenchmark {
+    @Param({"10", "1000", "50000"})
+    private int stepCount;
+    
+    private Guide guide;
+    private String guideString;
+    private File guideFile;
+    private ByteArrayOutputStream out;
+    private byte[] guideSmile;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        guide = GuideFixtures.createGuide(stepCount);
+        guideString = GuideUtil.exportGuide(guide, false);
+        guideFile = File.createTempFile("guide-" + stepCount + "-", ".json");
+        GuideUtil.writeGruide(guide, guideFile, false);
+        out = new ByteArrayOutputStream(guideString.length());
+        guideSmile = GuideUtil.encodeGuide(guide, DataFormat.SMILE);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        guideFile.delete();
+    }
+    
+    @Benchmark
+    public Guide readGuideFromString() {
+        return GuideUtil.readGuide(guideString);
+    }
+    
+    @Benchmark
+    public Guide readGuideFromFile() {
+        return GuideUtil.readGuide(guideFile);
+    }
+    
+    @Benchmark
+    public String exportGuide() throws IOException {
+        return GuideUtil.exportGuide(guide, false);
+    }
+    
+    @Benchmark
+    public String exportGuidePretty() throws IOException {
+        return GuideUtil.exportGuide(guide, true);
+    }
+    
+    @Benchmark
+    public int writeGuideToStream() throws IOException {
+        out.reset();
+        GuideUtil.writeGuide(guide, out, false);
+        return out.size();
+    }
+    
+    @Benchmark
+    public Guide decodeGuideFromSmile() {
+        return GuideUtil.decodeGuide(guideSmile);
+    }
+    
+    @Benchmark
+    public byte[] encodeGuideAsSmile() throws IOException {
+        return GuideUtil.encodeGuide(guide, DataFormat.SMILE);
+    }
+}
@@ -23,7 +23,7 @@ public class AccessEntry implements de.eome.guide.api.AccessEntry {
         
         if (type == Type.USER || type == Type.GROUP) {
             if (splittedString.length > 1) {
-                id = accessEntryString.substring(splittedString[0].length());
+                id = accessEntryString.substring(splittedString[0].length() + 1);
             } else {
                 throw new IllegalArgumentException("Access entries of type USER and GROUP require a target identifier, e.g., \"@group:administrators\".");
             }
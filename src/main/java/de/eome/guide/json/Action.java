@@ -1,6 +1,7 @@
 package de.eome.guide.json;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.Map;
 
 public class Action extends Step implements de.eome.guide.api.Action {
 
@@ -13,6 +14,10 @@ public class Action extends Step implements de.eome.guide.api.Action {
         validate(actionNode);
     }
     
+    Action(ObjectNode actionNode, Map<String, String> content) {
+        super(actionNode, content);
+    }
+    
     private static void validate(ObjectNode json) throws IllegalArgumentException {
         // nothing
     }
@@ -1,6 +1,7 @@
 package de.eome.guide.json;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.Map;
 
 /**
  * JSON wrapper implementation of the branch model interface.
@@ -13,4 +14,8 @@ public abstract class Branch extends Step implements de.eome.guide.api.Branch {
     protected Branch(ObjectNode json) throws IllegalArgumentException {
         super(json);
     }
+    
+    Branch(ObjectNode json, Map<String, String> content) {
+        super(json, content);
+    }
 }
@@ -0,0 +1,139 @@
+package de.eome.guide.json;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes a single change of a model object.
+ * The property is named like the JSON field holding it. Changes of map entries, e.g., content ids, carry the map key,
+ * changes of list entries, e.g., steps or options, carry the position of the entry if it is known.
+ */
+public final class ChangeEvent {
+    
+    public enum Operation {
+        SET, ADD, REMOVE
+    }
+    
+    private final Object source;
+    private final Operation operation;
+    private final String property;
+    private final String key;
+    private final int index;
+    private final Object oldValue;
+    private final Object newValue;
+    
+    private ChangeEvent(Object source, Operation operation, String property, String key, int index, Object oldValue, Object newValue) {
+        this.source = source;
+        this.operation = operation;
+        this.property = property;
+        this.key = key;
+        this.index = index;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+    }
+    
+    static ChangeEvent set(Object source, String property, Object oldValue, Object newValue) {
+        return new ChangeEvent(source, Operation.SET, property, null, -1, oldValue, newValue);
+    }
+    
+    static ChangeEvent remove(Object source, String property, Object oldValue) {
+        return new ChangeEvent(source, Operation.REMOVE, property, null, -1, oldValue, null);
+    }
+    
+    static ChangeEvent setEntry(Object source, String property, String key, Object oldValue, Object newValue) {
+        return new ChangeEvent(source, Operation.SET, property, key, -1, oldValue, newValue);
+    }
+    
+    static ChangeEvent removeEntry(Object source, String property, String key, Object oldValue) {
+        return new ChangeEvent(source, Operation.REMOVE, property, key, -1, oldValue, null);
+    }
+    
+    static ChangeEvent addElement(Object source, String property, int index, Object value) {
+        return new ChangeEvent(source, Operation.ADD, property, null, index, null, value);
+    }
+    
+    static ChangeEvent removeElement(Object source, String property, int index, Object value) {
+        return new ChangeEvent(source, Operation.REMOVE, property, null, index, value, null);
+    }
+    
+    /**
+     * Returns the object which was changed, e.g., a guide, step, option, content, media or iconized message.
+     * @return Changed object.
+     */
+    public Object getSource() {
+        return source;
+    }
+    
+    /**
+     * Returns the objects from the root guide or content down to the changed object.
+     * The path reflects the parents at the time of the call, it starts with the changed object itself if that has no parent.
+     * @return Path to the changed object, the last element is the source of this event.
+     */
+    public List<Object> getPath() {
+        List<Object> path = new ArrayList<>();
+        for (Object node = source; node != null; node = parentOf(node)) {
+            path.add(node);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+    
+    private static Object parentOf(Object node) {
+        if (node instanceof Step) return ((Step) node).getParent();
+        if (node instanceof Option) return ((Option) node).getParent();
+        if (node instanceof Media) return ((Media) node).getParent();
+        if (node instanceof IconizedMessage) return ((IconizedMessage) node).getParent();
+        return null;
+    }
+    
+    public Operation getOperation() {
+        return operation;
+    }
+    
+    /**
+     * Returns the name of the changed property, e.g., "next", "content", "tags" or "steps".
+     * @return Property name.
+     */
+    public String getProperty() {
+        return property;
+    }
+    
+    /**
+     * Returns the key of the changed map entry, e.g., the language id of a content id.
+     * @return Map key or <code>null</code> if the property is no map.
+     */
+    public String getKey() {
+        return key;
+    }
+    
+    /**
+     * Returns the position of the added or removed list entry.
+     * @return Position or <code>-1</code> if the property is no list or the position is unknown.
+     */
+    public int getIndex() {
+        return index;
+    }
+    
+    /**
+     * Returns the value before the change, for removed entries the removed value.
+     * @return Old value or <code>null</code>.
+     */
+    public Object getOldValue() {
+        return oldValue;
+    }
+    
+    /**
+     * Returns the value after the change, for added entries the added value.
+     * @return New value or <code>null</code>.
+     */
+    public Object getNewValue() {
+        return newValue;
+    }
+    
+    @Override
+    public String toString() {
+        return operation + " " + property + (key != null ? "[" + key + "]" : "") + (index >= 0 ? "[" + index + "]" : "")
+                + " on " + source.getClass().getSimpleName() + ": " + oldValue + " -> " + newValue;
+    }
+}
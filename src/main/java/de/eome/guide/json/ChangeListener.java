@@ -0,0 +1,8 @@
+package de.eome.guide.json;
+
+/**
+ * Listener receiving a {@link ChangeEvent} for every single change of a guide or content and the objects it contains.
+ */
+public interface ChangeListener {
+    public void changePerformed(ChangeEvent event);
+}
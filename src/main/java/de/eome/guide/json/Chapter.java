@@ -2,6 +2,7 @@ package de.eome.guide.json;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.eome.guide.json.util.JsonUtil;
+import java.util.Map;
 
 /**
  * JSON wrapper implementation for chapter model interface.
@@ -18,14 +19,19 @@ public class Chapter extends Step implements de.eome.guide.api.Chapter {
         validate(json);
     }
     
+    Chapter(ObjectNode json, Map<String, String> content) {
+        super(json, content);
+    }
+    
     private static void validate(ObjectNode json) throws IllegalArgumentException {
         JsonUtil.validateTextNode(json.path("target"), "target", false);
     }
 
     @Override
     public void setTarget(String guideId) {
+        String oldTarget = getTarget();
         json.put("target", guideId);
-        updatePerformed();
+        changePerformed(ChangeEvent.set(this, "target", oldTarget, guideId));
     }
 
     @Override
@@ -4,10 +4,13 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.eome.guide.json.util.JsonUtil;
+import java.time.Clock;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * JSON wrapper implementation for the content descriptor model.
@@ -17,13 +20,25 @@ public class Content implements de.eome.guide.api.Content, UpdateListener {
     private Media media;
     private final List<IconizedMessage> warnings;
     private final List<IconizedMessage> hints;
-    private OffsetDateTime lastUpdate;
+    private final LastUpdate lastUpdate;
+    private int batchDepth;
+    private boolean batchUpdatePending;
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
     
     public Content(String id) {
+        this(id, Clock.systemDefaultZone());
+    }
+    
+    /**
+     * Creates a new content stamping its updates with the given clock.
+     * @param id Identifier of the content.
+     * @param clock Clock to take the last update time from.
+     */
+    public Content(String id, Clock clock) {
         json = JsonNodeFactory.instance.objectNode();
         json.put("id", id);
-        lastUpdate = OffsetDateTime.now();
-        json.put("lastUpdate", lastUpdate.toString());
+        lastUpdate = new LastUpdate(clock);
+        lastUpdate.stamp();
         media = null;
         warnings = new ArrayList<>();
         hints = new ArrayList<>();
@@ -32,6 +47,7 @@ public class Content implements de.eome.guide.api.Content, UpdateListener {
     public Content(ObjectNode json) throws IllegalArgumentException {
         validate(json);
         this.json = json;
+        this.lastUpdate = new LastUpdate(Clock.systemDefaultZone());
         warnings = new ArrayList<>();
         hints = new ArrayList<>();
         if (json.path("media").isObject()) {
@@ -65,8 +81,9 @@ public class Content implements de.eome.guide.api.Content, UpdateListener {
 
     @Override
     public void setLanguageId(String languageId) {
+        String oldLanguageId = getLanguageId();
         json.set("languageId", JsonNodeFactory.instance.textNode(languageId));
-        updatePerformed();
+        changePerformed(ChangeEvent.set(this, "languageId", oldLanguageId, languageId));
     }
 
     @Override
@@ -76,8 +93,9 @@ public class Content implements de.eome.guide.api.Content, UpdateListener {
 
     @Override
     public void setTitle(String title) {
+        String oldTitle = getTitle();
         json.set("title", JsonNodeFactory.instance.textNode(title));
-        updatePerformed();
+        changePerformed(ChangeEvent.set(this, "title", oldTitle, title));
     }
 
     @Override
@@ -87,8 +105,9 @@ public class Content implements de.eome.guide.api.Content, UpdateListener {
 
     @Override
     public void setDescription(String description) {
+        String oldDescription = getDescription();
         json.put("description", description);
-        updatePerformed();
+        changePerformed(ChangeEvent.set(this, "description", oldDescription, description));
     }
 
     @Override
@@ -103,9 +122,10 @@ public class Content implements de.eome.guide.api.Content, UpdateListener {
         }
         Media typedMedia = (Media) media;
         typedMedia.setParent(this);
+        Media oldMedia = this.media;
         this.media = typedMedia;
         json.set("media", typedMedia.asJson());
-        updatePerformed();
+        changePerformed(ChangeEvent.set(this, "media", oldMedia, typedMedia));
     }
 
     @Override
@@ -116,9 +136,10 @@ public class Content implements de.eome.guide.api.Content, UpdateListener {
     @Override
     public void removeMedia() {
         if (media != null) {
+            Media oldMedia = media;
             media = null;
             json.remove("media");
-            updatePerformed();
+            changePerformed(ChangeEvent.remove(this, "media", oldMedia));
         }
     }
 
@@ -137,7 +158,7 @@ public class Content implements de.eome.guide.api.Content, UpdateListener {
             warnings.add(typedWarning);
             typedWarning.setParent(this);
             JsonUtil.getOrCreateArray(json, "warnings").add(typedWarning.asJson());
-            updatePerformed();
+            changePerformed(ChangeEvent.addElement(this, "warnings", warnings.size() - 1, typedWarning));
         }
     }
 
@@ -147,11 +168,12 @@ public class Content implements de.eome.guide.api.Content, UpdateListener {
             throw new UnsupportedOperationException("Only available for warnings of class \"de.imc.ap.json.IconizedMessage\".");
         }
         IconizedMessage typedWarning = (IconizedMessage) warning;
-        if (warnings.contains(typedWarning)) {
-            warnings.remove(typedWarning);
+        int index = warnings.indexOf(typedWarning);
+        if (index >= 0) {
+            warnings.remove(index);
             typedWarning.setParent(null);
             JsonUtil.removeFromArray((ArrayNode) json.path("warnings"), typedWarning.asJson());
-            updatePerformed();
+            changePerformed(ChangeEvent.removeElement(this, "warnings", index, typedWarning));
         }
     }
 
@@ -170,7 +192,7 @@ public class Content implements de.eome.guide.api.Content, UpdateListener {
             hints.add(typedHint);
             typedHint.setParent(this);
             JsonUtil.getOrCreateArray(json, "hints").add(typedHint.asJson());
-            updatePerformed();
+            changePerformed(ChangeEvent.addElement(this, "hints", hints.size() - 1, typedHint));
         }
     }
 
@@ -180,30 +202,91 @@ public class Content implements de.eome.guide.api.Content, UpdateListener {
             throw new UnsupportedOperationException("Only available for hints of class \"de.imc.ap.json.IconizedMessage\".");
         }
         IconizedMessage typedHint = (IconizedMessage) hint;
-        if (hints.contains(typedHint)) {
-            hints.remove(typedHint);
+        int index = hints.indexOf(typedHint);
+        if (index >= 0) {
+            hints.remove(index);
             typedHint.setParent(null);
             JsonUtil.removeFromArray((ArrayNode) json.path("hints"), typedHint.asJson());
-            updatePerformed();
+            changePerformed(ChangeEvent.removeElement(this, "hints", index, typedHint));
+        }
+    }
+    
+    /**
+     * Applies several changes as one update.
+     * Updates performed within the given scope are not stamped individually, the last update time is set once when the outermost scope ends.
+     * Scopes may be nested.
+     * @param changes Changes to apply to this content.
+     */
+    public void batch(Consumer<? super Content> changes) {
+        batchDepth++;
+        try {
+            changes.accept(this);
+        } finally {
+            batchDepth--;
+            if (batchDepth == 0 && batchUpdatePending) {
+                batchUpdatePending = false;
+                updatePerformed();
+            }
         }
     }
     
     @Override
     public OffsetDateTime getLastUpdate() {
-        return lastUpdate;
+        return lastUpdate.get(json);
+    }
+    
+    /**
+     * Sets the clock the last update time is taken from on future updates.
+     * @param clock Clock to use.
+     */
+    public void setClock(Clock clock) {
+        lastUpdate.setClock(clock);
     }
 
     @Override
     public void updatePerformed() {
-        lastUpdate = OffsetDateTime.now();
-        json.put("lastUpdate", lastUpdate.toString());
+        if (batchDepth > 0) {
+            batchUpdatePending = true;
+            return;
+        }
+        lastUpdate.stamp();
+    }
+    
+    /**
+     * Passes a change of this content or one of its children to the registered change listeners and performs the update.
+     * Change listeners are notified immediately, also within a batch.
+     * @param event Change event.
+     */
+    void changePerformed(ChangeEvent event) {
+        for (ChangeListener listener : changeListeners) {
+            listener.changePerformed(event);
+        }
+        updatePerformed();
+    }
+    
+    /**
+     * Registers a listener notified about every single change of this content or one of its media object or messages.
+     * @param listener Listener to add.
+     */
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+    
+    /**
+     * Removes a previously registered change listener.
+     * @param listener Listener to remove.
+     */
+    public void removeChangeListener(ChangeListener listener) {
+        changeListeners.remove(listener);
     }
 
     /**
      * Returns the JSON object wrapped by this object.
+     * The last update time is written into the node on the first call after an update, later calls leave the node unchanged.
      * @return JSON object.
      */
     public ObjectNode asJson() {
+        lastUpdate.flush(json);
         return json;
     }
 
@@ -5,14 +5,22 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.eome.guide.json.util.JsonUtil;
+import java.time.Clock;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * Guide model wrapping a JSON object.
@@ -21,26 +29,57 @@ public class Guide implements de.eome.guide.api.Guide, UpdateListener {
     private final ObjectNode json;
     private final Map<String, String> content;
     private final List<AccessEntry> accessEntries;
-    private final List<Tag> tags;
+    private final Set<String> userAccess;
+    private final Set<String> groupAccess;
+    private boolean allAccess;
+    private final Set<Tag> tags;
+    private List<Tag> allTagsView;
+    private List<String> customTagsView;
+    private List<String> typedTagsView;
     private final List<Step> steps;
-    private OffsetDateTime lastUpdate;
+    private final Map<String, Step> stepIndex;
+    private final Map<String, Integer> stepPositions;
+    private boolean stepIndexValid;
+    private boolean stepPositionsValid;
+    private boolean hasDuplicateStepIds;
+    private StepGraph stepGraph;
+    private final LastUpdate lastUpdate;
+    private int batchDepth;
+    private boolean batchUpdatePending;
+    private final List<UpdateListener> updateListeners = new CopyOnWriteArrayList<>();
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
     
     public Guide(String id) {
+        this(id, Clock.systemDefaultZone());
+    }
+    
+    /**
+     * Creates a new guide stamping its updates with the given clock.
+     * @param id Identifier of the guide.
+     * @param clock Clock to take the last update time from.
+     */
+    public Guide(String id, Clock clock) {
         json = JsonNodeFactory.instance.objectNode();
         json.put("id", id);
-        lastUpdate = OffsetDateTime.now();
-        json.put("lastUpdate", lastUpdate.toString());
+        lastUpdate = new LastUpdate(clock);
+        lastUpdate.stamp();
         
         content = new LinkedHashMap<>();
         accessEntries = new ArrayList<>();
-        tags = new ArrayList<>();
+        userAccess = new HashSet<>();
+        groupAccess = new HashSet<>();
+        tags = new LinkedHashSet<>();
         steps = new ArrayList<>();
-        
+        stepIndex = new HashMap<>();
+        stepPositions = new HashMap<>();
+        stepIndexValid = true;
+        stepPositionsValid = true;
     }
     
     public Guide(ObjectNode json) throws IllegalArgumentException {
         validate(json);
         this.json = json;
+        this.lastUpdate = new LastUpdate(Clock.systemDefaultZone());
         
         this.content = new LinkedHashMap<>();
         if (json.path("content").isObject()) {
@@ -57,8 +96,11 @@ public class Guide implements de.eome.guide.api.Guide, UpdateListener {
             ArrayNode accessArray = (ArrayNode) json.path("access");
             accessArray.forEach(entry -> accessEntries.add(new AccessEntry(entry.asText())));
         }
+        userAccess = new HashSet<>();
+        groupAccess = new HashSet<>();
+        accessEntries.forEach(this::indexAccessEntry);
         
-        tags = new ArrayList<>();
+        tags = new LinkedHashSet<>();
         if (json.path("tags").isArray()) {
             ArrayNode tagsArray = (ArrayNode) json.path("tags");
             tagsArray.forEach(entry -> tags.add(Tag.ofString(entry.asText())));
@@ -69,6 +111,28 @@ public class Guide implements de.eome.guide.api.Guide, UpdateListener {
             ArrayNode stepsArray = (ArrayNode) json.path("steps");
             stepsArray.forEach(entry -> steps.add(Step.fromJson((ObjectNode) entry)));
         }
+        steps.forEach(step -> step.setParent(this));
+        stepIndex = new HashMap<>();
+        stepPositions = new HashMap<>();
+    }
+    
+    /**
+     * Creates a guide from an already validated JSON object and the model objects built from it.
+     * Used by {@link GuideReader}, which validates and builds everything while streaming the input.
+     */
+    Guide(ObjectNode json, Map<String, String> content, List<AccessEntry> accessEntries, Set<Tag> tags, List<Step> steps) {
+        this.json = json;
+        this.lastUpdate = new LastUpdate(Clock.systemDefaultZone());
+        this.content = content;
+        this.accessEntries = accessEntries;
+        this.userAccess = new HashSet<>();
+        this.groupAccess = new HashSet<>();
+        accessEntries.forEach(this::indexAccessEntry);
+        this.tags = tags;
+        this.steps = steps;
+        steps.forEach(step -> step.setParent(this));
+        stepIndex = new HashMap<>();
+        stepPositions = new HashMap<>();
     }
     
     private static void validate(JsonNode json) throws IllegalArgumentException {
@@ -96,21 +160,21 @@ public class Guide implements de.eome.guide.api.Guide, UpdateListener {
 
     @Override
     public void setContentId(String languageId, String contentId) {
-        content.put(languageId, contentId);
+        String oldContentId = content.put(languageId, contentId);
         JsonUtil.getOrCreateObject(json, "content").set(languageId, JsonNodeFactory.instance.textNode(contentId));
-        updatePerformed();
+        changePerformed(ChangeEvent.setEntry(this, "content", languageId, oldContentId, contentId));
     }
 
     @Override
     public void removeContentId(String languageId) {
         if (!content.containsKey(languageId)) return;
-        content.remove(languageId);
+        String oldContentId = content.remove(languageId);
         if (content.isEmpty()) {
             json.remove("content");
         } else {
             JsonUtil.getOrCreateObject(json, "content").remove(languageId);
         }
-        updatePerformed();
+        changePerformed(ChangeEvent.removeEntry(this, "content", languageId, oldContentId));
     }
 
     @Override
@@ -120,144 +184,188 @@ public class Guide implements de.eome.guide.api.Guide, UpdateListener {
 
     @Override
     public boolean hasUserAccess(String userId) {
-        return accessEntries.stream().anyMatch(entry -> entry.getType() == AccessEntry.Type.USER && entry.getId().equals(userId));
+        return userAccess.contains(userId);
     }
 
     @Override
     public boolean hasGroupAccess(String groupId) {
-        return accessEntries.stream().anyMatch(entry -> entry.getType() == AccessEntry.Type.GROUP && entry.getId().equals(groupId));
+        return groupAccess.contains(groupId);
     }
 
     @Override
     public boolean hasAllAccess() {
-        return accessEntries.stream().anyMatch(entry -> entry.getType() == AccessEntry.Type.ALL);
+        return allAccess;
+    }
+    
+    /**
+     * Checks whether a user has access to this guide, either for everyone, directly or via one of the given groups.
+     * @param userId Identifier of the user, may be <code>null</code> to check group access only.
+     * @param groupIds Identifiers of the groups the user belongs to.
+     * @return <code>true</code> if the user has access to this guide, otherwise <code>false</code>.
+     */
+    public boolean canAccess(String userId, Collection<String> groupIds) {
+        if (allAccess || (userId != null && userAccess.contains(userId))) {
+            return true;
+        }
+        if (!groupAccess.isEmpty()) {
+            for (String groupId : groupIds) {
+                if (groupAccess.contains(groupId)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     @Override
     public void grantUserAccess(String userId) {
         if (!hasUserAccess(userId)) {
-            AccessEntry newEntry = AccessEntry.forUser(userId);
-            accessEntries.add(newEntry);
-            JsonUtil.getOrCreateArray(json, "access").add(newEntry.toString());
-            updatePerformed();
+            addAccessEntry(AccessEntry.forUser(userId));
         }
     }
     
     @Override
     public void grantGroupAccess(String groupId) {
         if (!hasGroupAccess(groupId)) {
-            AccessEntry newEntry = AccessEntry.forGroup(groupId);
-            accessEntries.add(newEntry);
-            JsonUtil.getOrCreateArray(json, "access").add(newEntry.toString());
-            updatePerformed();
+            addAccessEntry(AccessEntry.forGroup(groupId));
         }
     }
 
     @Override
     public void grantAllAccess() {
         if (!hasAllAccess()) {
-            AccessEntry newEntry = AccessEntry.forAll();
-            accessEntries.add(newEntry);
-            JsonUtil.getOrCreateArray(json, "access").add(newEntry.toString());
-            updatePerformed();
+            addAccessEntry(AccessEntry.forAll());
         }
     }
 
     @Override
     public void revokeUserAccess(String userId) {
-        AccessEntry accessEntry = accessEntries.stream().filter(entry -> entry.getType() == AccessEntry.Type.USER && entry.getId().equals(userId)).findAny().orElse(null);
-        if (accessEntry != null) {
-            accessEntries.remove(accessEntry);
-            JsonUtil.removeFromArray((ArrayNode) json.path("access"), accessEntry.toString());
-            if (accessEntries.isEmpty()) json.remove("access");
-            updatePerformed();
+        if (userAccess.remove(userId)) {
+            removeAccessEntry(AccessEntry.forUser(userId));
         }
     }
 
     @Override
     public void revokeGroupAccess(String groupId) {
-        AccessEntry accessEntry = accessEntries.stream().filter(entry -> entry.getType() == AccessEntry.Type.GROUP && entry.getId().equals(groupId)).findAny().orElse(null);
-        if (accessEntry != null) {
-            accessEntries.remove(accessEntry);
-            JsonUtil.removeFromArray((ArrayNode) json.path("access"), accessEntry.toString());
-            if (accessEntries.isEmpty()) json.remove("access");
-            updatePerformed();
+        if (groupAccess.remove(groupId)) {
+            removeAccessEntry(AccessEntry.forGroup(groupId));
         }
     }
 
     @Override
     public void revokeAllAccess() {
-        AccessEntry accessEntry = accessEntries.stream().filter(entry -> entry.getType() == AccessEntry.Type.ALL).findAny().orElse(null);
-        if (accessEntry != null) {
-            accessEntries.remove(accessEntry);
-            JsonUtil.removeFromArray((ArrayNode) json.path("access"), accessEntry.toString());
-            if (accessEntries.isEmpty()) json.remove("access");
-            updatePerformed();
+        if (allAccess) {
+            allAccess = false;
+            removeAccessEntry(AccessEntry.forAll());
+        }
+    }
+    
+    private void indexAccessEntry(AccessEntry entry) {
+        switch (entry.getType()) {
+            case USER:
+                userAccess.add(entry.getId());
+                break;
+            case GROUP:
+                groupAccess.add(entry.getId());
+                break;
+            case ALL:
+                allAccess = true;
+                break;
         }
     }
+    
+    private void addAccessEntry(AccessEntry entry) {
+        accessEntries.add(entry);
+        indexAccessEntry(entry);
+        JsonUtil.getOrCreateArray(json, "access").add(entry.toString());
+        changePerformed(ChangeEvent.addElement(this, "access", accessEntries.size() - 1, entry));
+    }
+    
+    /**
+     * Removes all entries equal to the given one from the entry list and the JSON array.
+     * The index must already be updated by the caller.
+     */
+    private void removeAccessEntry(AccessEntry entry) {
+        accessEntries.removeIf(existing -> existing.getType() == entry.getType() && Objects.equals(existing.getId(), entry.getId()));
+        JsonUtil.removeFromArray((ArrayNode) json.path("access"), entry.toString());
+        if (accessEntries.isEmpty()) json.remove("access");
+        changePerformed(ChangeEvent.removeElement(this, "access", -1, entry));
+    }
 
     @Override
     public List<Tag> getAllTags() {
-        return Collections.unmodifiableList(tags);
+        if (allTagsView == null) {
+            allTagsView = Collections.unmodifiableList(new ArrayList<>(tags));
+        }
+        return allTagsView;
     }
 
     @Override
     public List<String> getCustomTags() {
-        return tags.stream()
-            .filter(tag -> tag.getType() == de.eome.guide.api.Tag.Type.CUSTOM)
-            .map(tag -> tag.getValue())
-            .collect(Collectors.toList());
+        if (customTagsView == null) {
+            customTagsView = tagValues(de.eome.guide.api.Tag.Type.CUSTOM);
+        }
+        return customTagsView;
     }
 
     @Override
     public List<String> getTypedTags() {
-        return tags.stream()
-            .filter(tag -> tag.getType() == de.eome.guide.api.Tag.Type.TYPED)
-            .map(tag -> tag.getValue())
-            .collect(Collectors.toList());
+        if (typedTagsView == null) {
+            typedTagsView = tagValues(de.eome.guide.api.Tag.Type.TYPED);
+        }
+        return typedTagsView;
+    }
+    
+    private List<String> tagValues(de.eome.guide.api.Tag.Type type) {
+        List<String> values = new ArrayList<>();
+        for (Tag tag : tags) {
+            if (tag.getType() == type) values.add(tag.getValue());
+        }
+        return Collections.unmodifiableList(values);
     }
 
     @Override
     public void addCustomTag(String value) {
-        Tag newTag = new Tag(de.eome.guide.api.Tag.Type.CUSTOM, value);
-        if (!tags.contains(newTag)) {
-            tags.add(newTag);
-            JsonUtil.getOrCreateArray(json, "tags").add(newTag.toString());
-            updatePerformed();
-        }
+        addTag(new Tag(de.eome.guide.api.Tag.Type.CUSTOM, value));
     }
 
     @Override
     public void removeCustomTag(String value) {
-        Tag tag = new Tag(de.eome.guide.api.Tag.Type.CUSTOM, value);
-        if (tags.contains(tag)) {
-            tags.remove(tag);
-            JsonUtil.removeFromArray((ArrayNode) json.path("tags"), tag.toString());
-            if (tags.isEmpty()) json.remove("tags");
-            updatePerformed();
-        }
+        removeTag(new Tag(de.eome.guide.api.Tag.Type.CUSTOM, value));
     }
 
     @Override
     public void addTypedTag(String value) {
-        Tag newTag = new Tag(de.eome.guide.api.Tag.Type.TYPED, value);
-        if (!tags.contains(newTag)) {
-            tags.add(newTag);
-            JsonUtil.getOrCreateArray(json, "tags").add(newTag.toString());
-            updatePerformed();
-        }
+        addTag(new Tag(de.eome.guide.api.Tag.Type.TYPED, value));
     }
 
     @Override
     public void removeTypedTag(String value) {
-        Tag tag = new Tag(de.eome.guide.api.Tag.Type.TYPED, value);
-        if (tags.contains(tag)) {
-            tags.remove(tag);
+        removeTag(new Tag(de.eome.guide.api.Tag.Type.TYPED, value));
+    }
+    
+    private void addTag(Tag tag) {
+        if (tags.add(tag)) {
+            invalidateTagViews();
+            JsonUtil.getOrCreateArray(json, "tags").add(tag.toString());
+            changePerformed(ChangeEvent.addElement(this, "tags", -1, tag));
+        }
+    }
+    
+    private void removeTag(Tag tag) {
+        if (tags.remove(tag)) {
+            invalidateTagViews();
             JsonUtil.removeFromArray((ArrayNode) json.path("tags"), tag.toString());
             if (tags.isEmpty()) json.remove("tags");
-            updatePerformed();
+            changePerformed(ChangeEvent.removeElement(this, "tags", -1, tag));
         }
     }
+    
+    private void invalidateTagViews() {
+        allTagsView = null;
+        customTagsView = null;
+        typedTagsView = null;
+    }
 
     @Override
     public List<Step> getSteps() {
@@ -266,17 +374,48 @@ public class Guide implements de.eome.guide.api.Guide, UpdateListener {
 
     @Override
     public Step getStep(String stepId) {
-        return steps.stream().filter(step -> step.getId().equals(stepId)).findAny().orElse(null);
+        if (!stepIndexValid) rebuildStepIndex();
+        return stepIndex.get(stepId);
     }
 
     @Override
     public int indexOfStep(String stepId) {
+        if (!stepPositionsValid) rebuildStepIndex();
+        Integer position = stepPositions.get(stepId);
+        return position != null ? position : -1;
+    }
+    
+    /**
+     * Rebuilds the id to step and id to position indexes.
+     * If multiple steps share an id, the first one is indexed.
+     */
+    private void rebuildStepIndex() {
+        stepIndex.clear();
+        stepPositions.clear();
+        hasDuplicateStepIds = false;
         for (int i = 0; i < steps.size(); i++) {
-            if (steps.get(i).getId().equals(stepId)) {
-                return i;
+            Step step = steps.get(i);
+            if (stepPositions.putIfAbsent(step.getId(), i) == null) {
+                stepIndex.put(step.getId(), step);
+            } else {
+                hasDuplicateStepIds = true;
             }
         }
-        return -1;
+        stepIndexValid = true;
+        stepPositionsValid = true;
+    }
+    
+    private void invalidateStepIndex() {
+        stepIndexValid = false;
+        stepPositionsValid = false;
+    }
+    
+    /**
+     * Called by a step of this guide after its id was changed.
+     * @param step Step with changed id.
+     */
+    void stepIdChanged(Step step) {
+        invalidateStepIndex();
     }
     
     @Override
@@ -288,7 +427,20 @@ public class Guide implements de.eome.guide.api.Guide, UpdateListener {
         typedStep.setParent(this);
         steps.add(index, typedStep);
         JsonUtil.getOrCreateArray(json, "steps").insert(index, typedStep.asJson());
-        updatePerformed();
+        if (stepIndexValid) {
+            String stepId = typedStep.getId();
+            if (stepIndex.containsKey(stepId)) {
+                invalidateStepIndex();
+            } else {
+                stepIndex.put(stepId, typedStep);
+                if (stepPositionsValid && index == steps.size() - 1) {
+                    stepPositions.put(stepId, index);
+                } else {
+                    stepPositionsValid = false;
+                }
+            }
+        }
+        changePerformed(ChangeEvent.addElement(this, "steps", index, typedStep));
     }
 
     @Override
@@ -298,33 +450,170 @@ public class Guide implements de.eome.guide.api.Guide, UpdateListener {
 
     @Override
     public Step removeStep(String stepId) {
-        Step step = getStep(stepId);
-        if (step != null) {
-            steps.remove(step);
-            step.setParent(null);
-            JsonUtil.removeFromArray((ArrayNode) json.path("steps"), step.asJson());
-            if (steps.isEmpty()) json.remove("steps");
+        int index = indexOfStep(stepId);
+        if (index < 0) {
+            updatePerformed();
+            return null;
         }
-        updatePerformed();
+        return removeStep(index);
+    }
+    
+    /**
+     * Removes the step at the given position.
+     * @param index Position of the step to remove.
+     * @return Removed step.
+     * @throws IndexOutOfBoundsException The index is out of range.
+     */
+    public Step removeStep(int index) {
+        Step step = steps.remove(index);
+        String stepId = step.getId();
+        step.setParent(null);
+        ArrayNode stepsArray = (ArrayNode) json.path("steps");
+        if (stepsArray.get(index) == step.asJson()) {
+            stepsArray.remove(index);
+        } else {
+            JsonUtil.removeFromArray(stepsArray, step.asJson());
+        }
+        if (steps.isEmpty()) json.remove("steps");
+        if (hasDuplicateStepIds) {
+            invalidateStepIndex();
+        } else {
+            stepIndex.remove(stepId);
+            stepPositions.remove(stepId);
+            if (index != steps.size()) stepPositionsValid = false;
+        }
+        changePerformed(ChangeEvent.removeElement(this, "steps", index, step));
         return step;
     }
     
+    /**
+     * Returns the flow graph of the steps, compiled on first access and cached until a step, option, step id, reference or chapter target changes.
+     * @return Step graph of the current steps.
+     */
+    public StepGraph getStepGraph() {
+        if (stepGraph == null) {
+            stepGraph = new StepGraph(steps);
+        }
+        return stepGraph;
+    }
+    
+    /**
+     * Applies several changes as one update.
+     * Updates performed within the given scope are not stamped individually, the last update time is set once when the outermost scope ends.
+     * Scopes may be nested.
+     * @param changes Changes to apply to this guide.
+     */
+    public void batch(Consumer<? super Guide> changes) {
+        batchDepth++;
+        try {
+            changes.accept(this);
+        } finally {
+            batchDepth--;
+            if (batchDepth == 0 && batchUpdatePending) {
+                batchUpdatePending = false;
+                updatePerformed();
+            }
+        }
+    }
+    
     @Override
     public OffsetDateTime getLastUpdate() {
-        return lastUpdate;
+        return lastUpdate.get(json);
+    }
+    
+    /**
+     * Sets the clock the last update time is taken from on future updates.
+     * @param clock Clock to use.
+     */
+    public void setClock(Clock clock) {
+        lastUpdate.setClock(clock);
     }
 
     /**
      * Returns the JSON node wrapped by this object.
+     * The last update time is written into the node on the first call after an update, later calls leave the node unchanged.
      * @return JSON node.
      */
     public ObjectNode asJson() {
+        lastUpdate.flush(json);
         return json;
     }
 
     @Override
     public void updatePerformed() {
-        lastUpdate = OffsetDateTime.now();
-        json.put("lastUpdate", lastUpdate.toString());
+        if (batchDepth > 0) {
+            batchUpdatePending = true;
+            return;
+        }
+        lastUpdate.stamp();
+        for (UpdateListener listener : updateListeners) {
+            listener.updatePerformed();
+        }
+    }
+    
+    /**
+     * Registers a listener notified after every update of this guide or one of its steps.
+     * @param listener Listener to add.
+     */
+    public void addUpdateListener(UpdateListener listener) {
+        updateListeners.add(listener);
+    }
+    
+    /**
+     * Removes a previously registered update listener.
+     * @param listener Listener to remove.
+     */
+    public void removeUpdateListener(UpdateListener listener) {
+        updateListeners.remove(listener);
+    }
+    
+    /**
+     * Passes a change of this guide or one of its children to the registered change listeners and performs the update.
+     * Change listeners are notified immediately, also within a batch.
+     * @param event Change event.
+     */
+    void changePerformed(ChangeEvent event) {
+        switch (event.getProperty()) {
+            case "steps":
+            case "options":
+            case "id":
+            case "next":
+            case "target":
+                stepGraph = null;
+                break;
+            default:
+                break;
+        }
+        for (ChangeListener listener : changeListeners) {
+            listener.changePerformed(event);
+        }
+        updatePerformed();
+    }
+    
+    /**
+     * Called after a top-level field of the wrapped JSON object that is not part of the model was changed directly, e.g., by a patch.
+     * Fires a change event named after the field carrying the old and the current JSON value and performs the update.
+     * @param field Name of the changed field.
+     * @param oldValue Value before the change or <code>null</code> if the field did not exist.
+     */
+    void jsonFieldChanged(String field, JsonNode oldValue) {
+        JsonNode newValue = json.get(field);
+        changePerformed(newValue != null ? ChangeEvent.set(this, field, oldValue, newValue) : ChangeEvent.remove(this, field, oldValue));
+    }
+    
+    /**
+     * Registers a listener notified about every single change of this guide or one of its steps.
+     * @param listener Listener to add.
+     */
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+    
+    /**
+     * Removes a previously registered change listener.
+     * @param listener Listener to remove.
+     */
+    public void removeChangeListener(ChangeListener listener) {
+        changeListeners.remove(listener);
     }
 }
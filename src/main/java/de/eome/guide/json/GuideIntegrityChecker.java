@@ -0,0 +1,109 @@
+package de.eome.guide.json;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Checks the references between the steps of a guide.
+ * All checks use the id index of the {@link StepGraph} cached by the guide, so a check takes linear time in the number of steps and options
+ * and is cheap enough to run on every save.
+ */
+public final class GuideIntegrityChecker {
+
+    private GuideIntegrityChecker() {};
+
+    /**
+     * Checks a guide for steps sharing an id, <code>next</code> references to unknown steps, user requests without options and steps not
+     * reachable from the first step.
+     * @param guide Guide to check.
+     * @return All issues ordered by step position, empty if the guide has none.
+     */
+    public static List<Issue> check(Guide guide) {
+        StepGraph graph = guide.getStepGraph();
+        List<Step> steps = guide.getSteps();
+        BitSet unreachable = graph.getUnreachable();
+        List<Issue> issues = new ArrayList<>();
+        for (int i = 0; i < steps.size(); i++) {
+            Step step = steps.get(i);
+            String pointer = "/steps/" + i;
+            int first = graph.indexOf(step.getId());
+            if (first != i) {
+                issues.add(new Issue(Issue.Type.DUPLICATE_ID, step.getId(), pointer + "/id",
+                        "Step id " + step.getId() + " is already used by the step at position " + first + "."));
+            }
+            String next = step.getNext();
+            if (next != null && graph.indexOf(next) < 0) {
+                issues.add(new Issue(Issue.Type.DANGLING_NEXT, step.getId(), pointer + "/next", "Unknown next step " + next + "."));
+            }
+            if (step instanceof UserRequest) {
+                List<Option> options = ((UserRequest) step).getOptions();
+                if (options.isEmpty()) {
+                    issues.add(new Issue(Issue.Type.EMPTY_BRANCH, step.getId(), pointer + "/userRequest/options", "User request without options."));
+                }
+                for (int j = 0; j < options.size(); j++) {
+                    String optionNext = options.get(j).getNext();
+                    if (optionNext != null && graph.indexOf(optionNext) < 0) {
+                        issues.add(new Issue(Issue.Type.DANGLING_NEXT, step.getId(), pointer + "/userRequest/options/" + j + "/next",
+                                "Unknown next step " + optionNext + "."));
+                    }
+                }
+            }
+            if (unreachable.get(i)) {
+                issues.add(new Issue(Issue.Type.UNREACHABLE_STEP, step.getId(), pointer, "Step not reachable from the first step."));
+            }
+        }
+        return issues;
+    }
+
+    /**
+     * Integrity issue of a guide.
+     */
+    public static final class Issue {
+
+        public enum Type {
+            DUPLICATE_ID, DANGLING_NEXT, EMPTY_BRANCH, UNREACHABLE_STEP
+        }
+
+        private final Type type;
+        private final String stepId;
+        private final String pointer;
+        private final String message;
+
+        private Issue(Type type, String stepId, String pointer, String message) {
+            this.type = type;
+            this.stepId = stepId;
+            this.pointer = pointer;
+            this.message = message;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * Returns the id of the step having the issue.
+         * @return Step id.
+         */
+        public String getStepId() {
+            return stepId;
+        }
+
+        /**
+         * Returns the JSON pointer of the offending node within the guide, e.g., <code>/steps/3/userRequest/options/1/next</code>.
+         * @return JSON pointer.
+         */
+        public String getPointer() {
+            return pointer;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return pointer + ": " + message;
+        }
+    }
+}
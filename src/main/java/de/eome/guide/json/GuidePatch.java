@@ -0,0 +1,641 @@
+package de.eome.guide.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.eome.guide.api.ContentHolder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes and applies JSON Patches (RFC 6902) between two versions of a guide.
+ * Steps are matched by their id, so inserting, removing or reordering steps results in operations on single steps instead of a replacement of the step array.
+ * Changes within a matched step are diffed field by field. Access entries and tags are treated as sets, added entries are appended.
+ * The last update time is not part of a patch, the patched guide stamps its own update.
+ */
+public final class GuidePatch {
+    private static final JsonNodeFactory nodeFactory = JsonNodeFactory.instance;
+
+    private GuidePatch() {};
+
+    /**
+     * Computes the patch transforming the source guide into the target guide.
+     * @param source Guide to patch.
+     * @param target Guide to reach by the patch.
+     * @return JSON Patch as array of operations, empty if both guides are equal.
+     */
+    public static ArrayNode diff(Guide source, Guide target) {
+        ArrayNode patch = nodeFactory.arrayNode();
+        ObjectNode sourceJson = source.asJson();
+        ObjectNode targetJson = target.asJson();
+        Iterator<String> sourceFields = sourceJson.fieldNames();
+        while (sourceFields.hasNext()) {
+            String fieldName = sourceFields.next();
+            if (!targetJson.has(fieldName) && !fieldName.equals("lastUpdate")) {
+                addOperation(patch, "remove", "/" + escape(fieldName), null);
+            }
+        }
+        Iterator<Map.Entry<String, JsonNode>> targetFields = targetJson.fields();
+        while (targetFields.hasNext()) {
+            Map.Entry<String, JsonNode> field = targetFields.next();
+            String fieldName = field.getKey();
+            JsonNode sourceValue = sourceJson.get(fieldName);
+            JsonNode targetValue = field.getValue();
+            String path = "/" + escape(fieldName);
+            if (fieldName.equals("lastUpdate")) {
+                continue;
+            } else if (sourceValue == null) {
+                addOperation(patch, "add", path, targetValue);
+            } else if (fieldName.equals("access") || fieldName.equals("tags")) {
+                diffSet(patch, path, sourceValue, targetValue);
+            } else if (fieldName.equals("steps")) {
+                diffSteps(patch, sourceValue, targetValue);
+            } else {
+                diffNode(patch, path, sourceValue, targetValue);
+            }
+        }
+        return patch;
+    }
+
+    private static void diffSet(ArrayNode patch, String path, JsonNode source, JsonNode target) {
+        if (source.equals(target)) return;
+        if (!source.isArray() || !target.isArray()) {
+            addOperation(patch, "replace", path, target);
+            return;
+        }
+        Set<String> targetValues = new HashSet<>();
+        target.forEach(entry -> targetValues.add(entry.asText()));
+        Set<String> sourceValues = new HashSet<>();
+        for (int i = source.size() - 1; i >= 0; i--) {
+            String value = source.get(i).asText();
+            sourceValues.add(value);
+            if (!targetValues.contains(value)) {
+                addOperation(patch, "remove", path + "/" + i, null);
+            }
+        }
+        for (JsonNode entry : target) {
+            if (sourceValues.add(entry.asText())) {
+                addOperation(patch, "add", path + "/-", entry);
+            }
+        }
+    }
+
+    /**
+     * Diffs the step arrays matching steps by id.
+     * Steps missing in the target are removed, then every target step is moved or added right behind its predecessor in the target.
+     * Steps on a longest run keeping their relative order are never moved, so the number of moves is minimal.
+     */
+    private static void diffSteps(ArrayNode patch, JsonNode source, JsonNode target) {
+        if (source.equals(target)) return;
+        List<String> sourceIds = stepIds(source);
+        List<String> targetIds = stepIds(target);
+        if (sourceIds == null || targetIds == null) {
+            addOperation(patch, "replace", "/steps", target);
+            return;
+        }
+        Set<String> targetIdSet = new HashSet<>(targetIds);
+        Map<String, JsonNode> sourceSteps = new HashMap<>();
+        List<String> current = new ArrayList<>();
+        for (int i = source.size() - 1; i >= 0; i--) {
+            String id = sourceIds.get(i);
+            if (targetIdSet.contains(id)) {
+                sourceSteps.put(id, source.get(i));
+                current.add(id);
+            } else {
+                addOperation(patch, "remove", "/steps/" + i, null);
+            }
+        }
+        Collections.reverse(current);
+
+        Set<String> stableIds = longestOrderedRun(current, targetIds);
+        for (int j = 0; j < targetIds.size(); j++) {
+            String id = targetIds.get(j);
+            if (stableIds.contains(id)) continue;
+            int anchor = j == 0 ? -1 : current.indexOf(targetIds.get(j - 1));
+            if (sourceSteps.containsKey(id)) {
+                int from = current.indexOf(id);
+                current.remove(from);
+                if (from <= anchor) anchor--;
+                current.add(anchor + 1, id);
+                if (from != anchor + 1) {
+                    ObjectNode operation = addOperation(patch, "move", "/steps/" + (anchor + 1), null);
+                    operation.put("from", "/steps/" + from);
+                }
+            } else {
+                current.add(anchor + 1, id);
+                addOperation(patch, "add", "/steps/" + (anchor + 1), target.get(j));
+            }
+        }
+        for (int j = 0; j < targetIds.size(); j++) {
+            JsonNode sourceStep = sourceSteps.get(targetIds.get(j));
+            if (sourceStep != null) {
+                diffNode(patch, "/steps/" + j, sourceStep, target.get(j));
+            }
+        }
+    }
+
+    /**
+     * Returns the ids of the given steps or <code>null</code> if the steps are no array or their ids are missing or not unique.
+     */
+    private static List<String> stepIds(JsonNode steps) {
+        if (!steps.isArray()) return null;
+        List<String> ids = new ArrayList<>(steps.size());
+        Set<String> uniqueIds = new HashSet<>();
+        for (JsonNode step : steps) {
+            JsonNode id = step.path("id");
+            if (!id.isTextual() || !uniqueIds.add(id.asText())) return null;
+            ids.add(id.asText());
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the ids of a longest subsequence of the target order which already has the same order in the current list.
+     */
+    private static Set<String> longestOrderedRun(List<String> current, List<String> targetIds) {
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < current.size(); i++) {
+            positions.put(current.get(i), i);
+        }
+        List<String> matched = new ArrayList<>();
+        for (String id : targetIds) {
+            if (positions.containsKey(id)) matched.add(id);
+        }
+        int[] tails = new int[matched.size()];
+        int[] predecessors = new int[matched.size()];
+        int length = 0;
+        for (int i = 0; i < matched.size(); i++) {
+            int position = positions.get(matched.get(i));
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (positions.get(matched.get(tails[middle])) < position) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            predecessors[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) length++;
+        }
+        Set<String> stableIds = new HashSet<>();
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = predecessors[i]) {
+            stableIds.add(matched.get(i));
+        }
+        return stableIds;
+    }
+
+    private static void diffNode(ArrayNode patch, String path, JsonNode source, JsonNode target) {
+        if (source.equals(target)) return;
+        if (source.isObject() && target.isObject()) {
+            Iterator<String> sourceFields = source.fieldNames();
+            while (sourceFields.hasNext()) {
+                String fieldName = sourceFields.next();
+                if (!target.has(fieldName)) {
+                    addOperation(patch, "remove", path + "/" + escape(fieldName), null);
+                }
+            }
+            Iterator<Map.Entry<String, JsonNode>> targetFields = target.fields();
+            while (targetFields.hasNext()) {
+                Map.Entry<String, JsonNode> field = targetFields.next();
+                JsonNode sourceValue = source.get(field.getKey());
+                String fieldPath = path + "/" + escape(field.getKey());
+                if (sourceValue == null) {
+                    addOperation(patch, "add", fieldPath, field.getValue());
+                } else {
+                    diffNode(patch, fieldPath, sourceValue, field.getValue());
+                }
+            }
+        } else if (source.isArray() && target.isArray() && source.size() == target.size()) {
+            for (int i = 0; i < source.size(); i++) {
+                diffNode(patch, path + "/" + i, source.get(i), target.get(i));
+            }
+        } else {
+            addOperation(patch, "replace", path, target);
+        }
+    }
+
+    private static ObjectNode addOperation(ArrayNode patch, String op, String path, JsonNode value) {
+        ObjectNode operation = patch.addObject();
+        operation.put("op", op);
+        operation.put("path", path);
+        if (value != null) operation.set("value", value.deepCopy());
+        return operation;
+    }
+
+    private static String escape(String segment) {
+        return segment.replace("~", "~0").replace("/", "~1");
+    }
+
+    /**
+     * Applies a patch to a guide.
+     * The guide is changed via its model methods, so its steps, content ids, access entries and tags stay consistent with the wrapped JSON
+     * and listeners are notified of every change. All operations are applied as one batch.
+     * Operations are applied one by one, the guide is not restored if an operation fails.
+     * @param guide Guide to patch.
+     * @param patch JSON Patch as array of operations.
+     * @throws IllegalArgumentException The patch is invalid, one of its operations cannot be applied to the guide or changes the guide id.
+     */
+    public static void apply(Guide guide, ArrayNode patch) throws IllegalArgumentException {
+        guide.batch(batchGuide -> patch.forEach(operation -> applyOperation(batchGuide, operation)));
+    }
+
+    private static void applyOperation(Guide guide, JsonNode operation) {
+        if (!operation.isObject()) {
+            throw new IllegalArgumentException("Invalid patch operation, object expected.");
+        }
+        String op = operation.path("op").asText("");
+        List<String> path = parsePointer(operation.path("path"), "path");
+        JsonNode value = operation.get("value");
+        switch (op) {
+            case "add":
+            case "replace":
+                if (value == null) {
+                    throw new IllegalArgumentException("Missing field [value] for operation \"" + op + "\".");
+                }
+                change(guide, op, path, value.deepCopy());
+                break;
+            case "remove":
+                change(guide, op, path, null);
+                break;
+            case "test":
+                if (value == null || !value.equals(resolve(guide.asJson(), path))) {
+                    throw new IllegalArgumentException("Test failed for path " + operation.path("path").asText() + ".");
+                }
+                break;
+            case "copy":
+            case "move":
+                List<String> from = parsePointer(operation.path("from"), "from");
+                if (op.equals("move") && isStepPath(from) && isStepPath(path)) {
+                    moveStep(guide, from.get(1), path.get(1));
+                    break;
+                }
+                JsonNode movedValue = resolve(guide.asJson(), from).deepCopy();
+                if (op.equals("move")) change(guide, "remove", from, null);
+                change(guide, "add", path, movedValue);
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid patch operation: " + op);
+        }
+    }
+
+    private static boolean isStepPath(List<String> path) {
+        return path.size() == 2 && path.get(0).equals("steps");
+    }
+
+    private static void moveStep(Guide guide, String fromSegment, String toSegment) {
+        Step step = guide.removeStep(index(fromSegment, guide.getSteps().size(), false));
+        guide.addStep(index(toSegment, guide.getSteps().size(), true), step);
+    }
+
+    private static void change(Guide guide, String op, List<String> path, JsonNode value) {
+        if (path.isEmpty()) {
+            throw new IllegalArgumentException("The whole guide cannot be replaced by a patch.");
+        }
+        switch (path.get(0)) {
+            case "id":
+                throw new IllegalArgumentException("The guide id cannot be changed by a patch.");
+            case "lastUpdate":
+                break;
+            case "content":
+                changeContent(guide, op, path, 1, value);
+                break;
+            case "access":
+                changeAccess(guide, op, path, value);
+                break;
+            case "tags":
+                changeTags(guide, op, path, value);
+                break;
+            case "steps":
+                changeSteps(guide, op, path, value);
+                break;
+            default:
+                JsonNode oldValue = guide.asJson().get(path.get(0));
+                changeJson(guide.asJson(), op, path, value);
+                guide.jsonFieldChanged(path.get(0), oldValue != null ? oldValue.deepCopy() : null);
+        }
+    }
+
+    /**
+     * Changes the content ids of a content holder, the content object is located at <code>path[0..offset - 1]</code>.
+     */
+    private static void changeContent(ContentHolder holder, String op, List<String> path, int offset, JsonNode value) {
+        if (path.size() == offset) {
+            if (!op.equals("add") && holder.getContentIds().isEmpty()) {
+                throw new IllegalArgumentException("Path not found: " + pointer(path));
+            }
+            new ArrayList<>(holder.getContentIds().keySet()).forEach(holder::removeContentId);
+            if (value != null) {
+                if (!value.isObject()) {
+                    throw new IllegalArgumentException("Invalid value for path " + pointer(path) + ", object expected.");
+                }
+                Iterator<Map.Entry<String, JsonNode>> fields = value.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    holder.setContentId(field.getKey(), text(field.getValue(), path));
+                }
+            }
+        } else if (path.size() == offset + 1) {
+            String languageId = path.get(offset);
+            if (!op.equals("add") && holder.getContentId(languageId) == null) {
+                throw new IllegalArgumentException("Path not found: " + pointer(path));
+            }
+            if (value == null) {
+                holder.removeContentId(languageId);
+            } else {
+                holder.setContentId(languageId, text(value, path));
+            }
+        } else {
+            throw new IllegalArgumentException("Invalid path for content ids: " + pointer(path));
+        }
+    }
+
+    private static void changeAccess(Guide guide, String op, List<String> path, JsonNode value) {
+        if (path.size() == 1) {
+            new ArrayList<>(guide.getAllAccessEntries()).forEach(entry -> revoke(guide, entry));
+            if (value != null) {
+                stringArray(value, path).forEach(entry -> grant(guide, new AccessEntry(entry)));
+            }
+        } else if (path.size() == 2) {
+            List<AccessEntry> entries = guide.getAllAccessEntries();
+            if (!op.equals("add")) {
+                revoke(guide, entries.get(index(path.get(1), entries.size(), false)));
+            }
+            if (value != null) {
+                grant(guide, new AccessEntry(text(value, path)));
+            }
+        } else {
+            throw new IllegalArgumentException("Invalid path for access entries: " + pointer(path));
+        }
+    }
+
+    private static void grant(Guide guide, AccessEntry entry) {
+        switch (entry.getType()) {
+            case USER:
+                guide.grantUserAccess(entry.getId());
+                break;
+            case GROUP:
+                guide.grantGroupAccess(entry.getId());
+                break;
+            case ALL:
+                guide.grantAllAccess();
+                break;
+        }
+    }
+
+    private static void revoke(Guide guide, AccessEntry entry) {
+        switch (entry.getType()) {
+            case USER:
+                guide.revokeUserAccess(entry.getId());
+                break;
+            case GROUP:
+                guide.revokeGroupAccess(entry.getId());
+                break;
+            case ALL:
+                guide.revokeAllAccess();
+                break;
+        }
+    }
+
+    private static void changeTags(Guide guide, String op, List<String> path, JsonNode value) {
+        if (path.size() == 1) {
+            new ArrayList<>(guide.getAllTags()).forEach(tag -> removeTag(guide, tag));
+            if (value != null) {
+                stringArray(value, path).forEach(tag -> addTag(guide, Tag.ofString(tag)));
+            }
+        } else if (path.size() == 2) {
+            List<Tag> tags = guide.getAllTags();
+            if (!op.equals("add")) {
+                removeTag(guide, tags.get(index(path.get(1), tags.size(), false)));
+            }
+            if (value != null) {
+                addTag(guide, Tag.ofString(text(value, path)));
+            }
+        } else {
+            throw new IllegalArgumentException("Invalid path for tags: " + pointer(path));
+        }
+    }
+
+    private static void addTag(Guide guide, Tag tag) {
+        if (tag.getType() == de.eome.guide.api.Tag.Type.CUSTOM) {
+            guide.addCustomTag(tag.getValue());
+        } else {
+            guide.addTypedTag(tag.getValue());
+        }
+    }
+
+    private static void removeTag(Guide guide, Tag tag) {
+        if (tag.getType() == de.eome.guide.api.Tag.Type.CUSTOM) {
+            guide.removeCustomTag(tag.getValue());
+        } else {
+            guide.removeTypedTag(tag.getValue());
+        }
+    }
+
+    private static void changeSteps(Guide guide, String op, List<String> path, JsonNode value) {
+        List<Step> steps = guide.getSteps();
+        if (path.size() == 1) {
+            for (int i = steps.size() - 1; i >= 0; i--) {
+                guide.removeStep(i);
+            }
+            if (value != null) {
+                if (!value.isArray()) {
+                    throw new IllegalArgumentException("Invalid value for path /steps, array expected.");
+                }
+                value.forEach(entry -> guide.addStep(toStep(entry, path)));
+            }
+            return;
+        }
+        int index = index(path.get(1), steps.size(), op.equals("add") && path.size() == 2);
+        if (path.size() == 2) {
+            if (!op.equals("add")) guide.removeStep(index);
+            if (value != null) guide.addStep(index, toStep(value, path));
+        } else {
+            changeStep(guide, index, op, path, value);
+        }
+    }
+
+    /**
+     * Changes a field within a step. Fields with a model setter are changed via the setter, otherwise the step is replaced by a patched copy.
+     */
+    private static void changeStep(Guide guide, int index, String op, List<String> path, JsonNode value) {
+        Step step = guide.getSteps().get(index);
+        List<String> stepPath = path.subList(2, path.size());
+        String field = stepPath.get(0);
+        if (stepPath.size() == 1 && field.equals("next")) {
+            if (value == null) {
+                step.removeNext();
+            } else {
+                step.setNext(text(value, path));
+            }
+            return;
+        }
+        if (stepPath.size() == 1 && value != null && field.equals("id")) {
+            step.setId(text(value, path));
+            return;
+        }
+        if (stepPath.size() == 1 && value != null && field.equals("target") && step instanceof Chapter) {
+            ((Chapter) step).setTarget(text(value, path));
+            return;
+        }
+        if (field.equals("content") && !(step instanceof UserRequest)) {
+            changeContent(step, op, path, 3, value);
+            return;
+        }
+        if (field.equals("userRequest") && step instanceof UserRequest && stepPath.size() > 2) {
+            UserRequest userRequest = (UserRequest) step;
+            if (stepPath.get(1).equals("content")) {
+                changeContent(userRequest, op, path, 4, value);
+                return;
+            }
+            List<Option> options = userRequest.getOptions();
+            if (stepPath.get(1).equals("options") && stepPath.size() == 3) {
+                int optionIndex = index(stepPath.get(2), options.size(), op.equals("add"));
+                if (op.equals("remove")) {
+                    userRequest.removeOption(options.get(optionIndex));
+                    return;
+                }
+                if (op.equals("add") && optionIndex == options.size()) {
+                    if (!value.isObject()) {
+                        throw new IllegalArgumentException("Invalid value for path " + pointer(path) + ", object expected.");
+                    }
+                    userRequest.addOption(new Option((ObjectNode) value));
+                    return;
+                }
+            }
+            if (stepPath.get(1).equals("options") && stepPath.size() > 3) {
+                Option option = options.get(index(stepPath.get(2), options.size(), false));
+                if (stepPath.get(3).equals("content")) {
+                    changeContent(option, op, path, 6, value);
+                    return;
+                }
+                if (stepPath.size() == 4 && stepPath.get(3).equals("next")) {
+                    if (value == null) {
+                        option.removeNext();
+                    } else {
+                        option.setNext(text(value, path));
+                    }
+                    return;
+                }
+            }
+        }
+        ObjectNode patchedJson = step.asJson().deepCopy();
+        changeJson(patchedJson, op, stepPath, value);
+        Step patchedStep = toStep(patchedJson, path);
+        guide.removeStep(index);
+        guide.addStep(index, patchedStep);
+    }
+
+    private static Step toStep(JsonNode value, List<String> path) {
+        if (!value.isObject()) {
+            throw new IllegalArgumentException("Invalid value for path " + pointer(path) + ", object expected.");
+        }
+        return Step.fromJson((ObjectNode) value);
+    }
+
+    /**
+     * Applies an add, remove or replace operation to a plain JSON tree.
+     */
+    private static void changeJson(JsonNode root, String op, List<String> path, JsonNode value) {
+        JsonNode parent = resolve(root, path.subList(0, path.size() - 1));
+        String last = path.get(path.size() - 1);
+        if (parent.isObject()) {
+            ObjectNode object = (ObjectNode) parent;
+            if (!op.equals("add") && !object.has(last)) {
+                throw new IllegalArgumentException("Path not found: " + pointer(path));
+            }
+            if (value == null) {
+                object.remove(last);
+            } else {
+                object.set(last, value);
+            }
+        } else if (parent.isArray()) {
+            ArrayNode array = (ArrayNode) parent;
+            int index = index(last, array.size(), op.equals("add"));
+            if (op.equals("add")) {
+                array.insert(index, value);
+            } else if (value == null) {
+                array.remove(index);
+            } else {
+                array.set(index, value);
+            }
+        } else {
+            throw new IllegalArgumentException("Path not found: " + pointer(path));
+        }
+    }
+
+    private static JsonNode resolve(JsonNode root, List<String> path) {
+        JsonNode node = root;
+        for (String segment : path) {
+            if (node.isArray()) {
+                node = node.get(index(segment, node.size(), false));
+            } else {
+                node = node.get(segment);
+            }
+            if (node == null) {
+                throw new IllegalArgumentException("Path not found: " + pointer(path));
+            }
+        }
+        return node;
+    }
+
+    private static int index(String segment, int size, boolean allowEnd) {
+        if (allowEnd && segment.equals("-")) return size;
+        int index;
+        try {
+            index = Integer.parseInt(segment);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid array index: " + segment);
+        }
+        if (index < 0 || index > size || (index == size && !allowEnd)) {
+            throw new IllegalArgumentException("Array index out of range: " + segment);
+        }
+        return index;
+    }
+
+    private static List<String> parsePointer(JsonNode pointer, String fieldName) {
+        if (!pointer.isTextual()) {
+            throw new IllegalArgumentException("Missing or invalid field [" + fieldName + "], string expected.");
+        }
+        String text = pointer.asText();
+        if (text.isEmpty()) return Collections.emptyList();
+        if (!text.startsWith("/")) {
+            throw new IllegalArgumentException("Invalid JSON pointer: " + text);
+        }
+        List<String> segments = new ArrayList<>(Arrays.asList(text.substring(1).split("/", -1)));
+        segments.replaceAll(segment -> segment.replace("~1", "/").replace("~0", "~"));
+        return segments;
+    }
+
+    private static String pointer(List<String> path) {
+        StringBuilder pointer = new StringBuilder();
+        path.forEach(segment -> pointer.append('/').append(escape(segment)));
+        return pointer.toString();
+    }
+
+    private static String text(JsonNode value, List<String> path) {
+        if (!value.isTextual()) {
+            throw new IllegalArgumentException("Invalid value for path " + pointer(path) + ", string expected.");
+        }
+        return value.asText();
+    }
+
+    private static List<String> stringArray(JsonNode value, List<String> path) {
+        if (!value.isArray()) {
+            throw new IllegalArgumentException("Invalid value for path " + pointer(path) + ", array expected.");
+        }
+        List<String> entries = new ArrayList<>(value.size());
+        value.forEach(entry -> entries.add(text(entry, path)));
+        return entries;
+    }
+}
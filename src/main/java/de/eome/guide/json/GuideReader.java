@@ -0,0 +1,267 @@
+package de.eome.guide.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.eome.guide.json.util.GuideCodec;
+import de.eome.guide.json.util.JsonUtil;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Streaming reader building the guide model directly from parser tokens.
+ * The JSON object wrapped by the guide, the model objects and the validation are done in a single pass over the input,
+ * the resulting guide behaves like one created via {@link Guide#Guide(ObjectNode)}. Trusted input can be read without validation.
+ */
+public final class GuideReader {
+    private static final JsonNodeFactory nodeFactory = JsonNodeFactory.instance;
+
+    private GuideReader() {};
+
+    /**
+     * Reads a guide from the given parser.
+     * The parser must either point to the start of the guide object or not have been advanced yet.
+     * @param parser Parser to read the guide from.
+     * @param codec Codec used to read fields not known to the model.
+     * @return Guide read from the parser.
+     * @throws IOException Failed to read from the parser or input is no valid JSON.
+     * @throws IllegalArgumentException The input does not encode a valid guide.
+     */
+    public static Guide readGuide(JsonParser parser, GuideCodec codec) throws IOException, IllegalArgumentException {
+        return readGuide(parser, codec, true);
+    }
+    
+    /**
+     * Reads a guide known to be valid from the given parser, e.g., one written by this library, without validating it.
+     * Input violating the rules of the model results in an undefined guide or an arbitrary runtime exception, use
+     * {@link GuideValidator} or {@link #readGuide(JsonParser, GuideCodec)} for input from untrusted sources.
+     * @param parser Parser to read the guide from.
+     * @param codec Codec used to read fields not known to the model.
+     * @return Guide read from the parser.
+     * @throws IOException Failed to read from the parser or input is no valid JSON.
+     */
+    public static Guide readTrustedGuide(JsonParser parser, GuideCodec codec) throws IOException {
+        return readGuide(parser, codec, false);
+    }
+    
+    private static Guide readGuide(JsonParser parser, GuideCodec codec, boolean validate) throws IOException, IllegalArgumentException {
+        if (!parser.hasCurrentToken()) {
+            parser.nextToken();
+        }
+        if (validate && parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("The given input does not encode a valid JSON object.");
+        }
+        ObjectNode json = nodeFactory.objectNode();
+        Map<String, String> content = new LinkedHashMap<>();
+        List<AccessEntry> accessEntries = new ArrayList<>();
+        Set<Tag> tags = new LinkedHashSet<>();
+        List<Step> steps = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "id":
+                    json.set(fieldName, readText(parser, "id", validate));
+                    break;
+                case "content":
+                    content.clear();
+                    json.set(fieldName, readStringMap(parser, "content", content, validate));
+                    break;
+                case "access":
+                    accessEntries.clear();
+                    json.set(fieldName, readStringArray(parser, "access", entry -> accessEntries.add(new AccessEntry(entry)), validate));
+                    break;
+                case "tags":
+                    tags.clear();
+                    json.set(fieldName, readStringArray(parser, "tags", entry -> tags.add(Tag.ofString(entry)), validate));
+                    break;
+                case "steps":
+                    steps.clear();
+                    json.set(fieldName, readSteps(parser, codec, steps, validate));
+                    break;
+                default:
+                    json.set(fieldName, readTree(parser, codec));
+            }
+        }
+        if (validate) JsonUtil.validateTextNode(json.path("id"), "id", false);
+        return new Guide(json, content, accessEntries, tags, steps);
+    }
+
+    private static ArrayNode readSteps(JsonParser parser, GuideCodec codec, List<Step> steps, boolean validate) throws IOException {
+        if (validate && parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            throw new IllegalArgumentException("Invalid type of field [steps], array expected.");
+        }
+        ArrayNode array = nodeFactory.arrayNode();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (validate && parser.getCurrentToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Invalid entry for array [steps], object expected.");
+            }
+            Step step = readStep(parser, codec, validate);
+            steps.add(step);
+            array.add(step.asJson());
+        }
+        return array;
+    }
+
+    private static Step readStep(JsonParser parser, GuideCodec codec, boolean validate) throws IOException {
+        ObjectNode json = nodeFactory.objectNode();
+        Map<String, String> content = new LinkedHashMap<>();
+        ObjectNode userRequestNode = null;
+        Map<String, String> userRequestContent = new LinkedHashMap<>();
+        List<Option> options = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "id":
+                case "type":
+                case "next":
+                    json.set(fieldName, readText(parser, fieldName, validate));
+                    break;
+                case "content":
+                    content.clear();
+                    json.set(fieldName, readStringMap(parser, "content", content, validate));
+                    break;
+                case "userRequest":
+                    userRequestContent.clear();
+                    options.clear();
+                    userRequestNode = readUserRequest(parser, codec, userRequestContent, options, validate);
+                    json.set(fieldName, userRequestNode);
+                    break;
+                default:
+                    json.set(fieldName, readTree(parser, codec));
+            }
+        }
+        if (json.path("type").isMissingNode()) {
+            throw new IllegalArgumentException("Missing or invalid field [type], string expected.");
+        }
+        if (validate) JsonUtil.validateTextNode(json.path("id"), "id", false);
+        String type = json.path("type").asText();
+        switch (type) {
+            case "action":
+                return new Action(json, content);
+            case "milestone":
+                return new Milestone(json, content);
+            case "chapter":
+                if (validate) JsonUtil.validateTextNode(json.path("target"), "target", false);
+                return new Chapter(json, content);
+            case "branch":
+                if (validate) JsonUtil.validateObjectNode(userRequestNode, "userRequest", false);
+                return new UserRequest(json, content, userRequestNode, userRequestContent, options);
+            default:
+                throw new IllegalArgumentException("Invalid step type: " + type);
+        }
+    }
+
+    private static ObjectNode readUserRequest(JsonParser parser, GuideCodec codec, Map<String, String> content, List<Option> options, boolean validate) throws IOException {
+        if (validate && parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Invalid type of node [userRequest], object expected.");
+        }
+        ObjectNode json = nodeFactory.objectNode();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "content":
+                    content.clear();
+                    json.set(fieldName, readStringMap(parser, "userRequest.content", content, validate));
+                    break;
+                case "options":
+                    options.clear();
+                    json.set(fieldName, readOptions(parser, codec, options, validate));
+                    break;
+                default:
+                    json.set(fieldName, readTree(parser, codec));
+            }
+        }
+        return json;
+    }
+
+    private static ArrayNode readOptions(JsonParser parser, GuideCodec codec, List<Option> options, boolean validate) throws IOException {
+        if (validate && parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            throw new IllegalArgumentException("Invalid type of field [userRequest.options], array expected.");
+        }
+        ArrayNode array = nodeFactory.arrayNode();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (validate && parser.getCurrentToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Invalid entry for array [userRequest.options], object expected.");
+            }
+            ObjectNode json = nodeFactory.objectNode();
+            Map<String, String> content = new LinkedHashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+                switch (fieldName) {
+                    case "content":
+                        content.clear();
+                        json.set(fieldName, readStringMap(parser, "content", content, validate));
+                        break;
+                    case "next":
+                        json.set(fieldName, readText(parser, "next", validate));
+                        break;
+                    default:
+                        json.set(fieldName, readTree(parser, codec));
+                }
+            }
+            options.add(new Option(json, content));
+            array.add(json);
+        }
+        return array;
+    }
+
+    private static JsonNode readText(JsonParser parser, String fieldName, boolean validate) throws IOException {
+        if (validate && parser.getCurrentToken() != JsonToken.VALUE_STRING) {
+            throw new IllegalArgumentException("Invalid type of node [" + fieldName + "], string expected.");
+        }
+        return nodeFactory.textNode(parser.getText());
+    }
+
+    private static ObjectNode readStringMap(JsonParser parser, String fieldName, Map<String, String> map, boolean validate) throws IOException {
+        if (validate && parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Invalid type of field [" + fieldName + "], object expected.");
+        }
+        ObjectNode object = nodeFactory.objectNode();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            if (parser.nextToken() != JsonToken.VALUE_STRING && validate) {
+                throw new IllegalArgumentException("Invalid type of entry for map [" + fieldName + "] , string expected.");
+            }
+            String value = parser.getText();
+            map.put(key, value);
+            object.put(key, value);
+        }
+        return object;
+    }
+
+    private static ArrayNode readStringArray(JsonParser parser, String fieldName, Consumer<String> entryConsumer, boolean validate) throws IOException {
+        if (validate && parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            throw new IllegalArgumentException("Invalid type of field [" + fieldName + "], array expected.");
+        }
+        ArrayNode array = nodeFactory.arrayNode();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (validate && parser.getCurrentToken() != JsonToken.VALUE_STRING) {
+                throw new IllegalArgumentException("Invalid entry for array [" + fieldName + "], string expected.");
+            }
+            String value = parser.getText();
+            entryConsumer.accept(value);
+            array.add(value);
+        }
+        return array;
+    }
+
+    private static JsonNode readTree(JsonParser parser, GuideCodec codec) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return nodeFactory.nullNode();
+        }
+        return codec.getMapper().readTree(parser);
+    }
+}
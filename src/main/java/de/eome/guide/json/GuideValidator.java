@@ -0,0 +1,435 @@
+package de.eome.guide.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streaming validator checking guides and contents against the rules of the model without building it.
+ * Unlike the constructors of the model, which stop at the first problem, the validator reports every violation together with the JSON pointer
+ * of the offending node in a single pass over the parser tokens. Apart from the reported violations its memory use does not depend on the input.
+ * Data known to be valid, e.g., written by this library, can be read without any validation, see {@link GuideReader#readTrustedGuide(JsonParser, de.eome.guide.json.util.GuideCodec)}.
+ */
+public final class GuideValidator {
+    private final JsonParser parser;
+    private final int maxViolations;
+    private final List<Violation> violations;
+    private List<Violation> deferred;
+
+    private GuideValidator(JsonParser parser, int maxViolations) {
+        this.parser = parser;
+        this.maxViolations = maxViolations;
+        this.violations = new ArrayList<>();
+    }
+
+    /**
+     * Validates a guide read from the given parser.
+     * The parser must either point to the start of the guide object or not have been advanced yet.
+     * @param parser Parser to read the guide from.
+     * @return All violations in order of their occurrence, empty if the input encodes a valid guide.
+     * @throws IOException Failed to read from the parser.
+     */
+    public static List<Violation> validateGuide(JsonParser parser) throws IOException {
+        return validateGuide(parser, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Validates a guide read from the given parser, stopping after a number of violations.
+     * @param parser Parser to read the guide from.
+     * @param maxViolations Maximum number of violations to report.
+     * @return Violations in order of their occurrence, empty if the input encodes a valid guide.
+     * @throws IOException Failed to read from the parser.
+     */
+    public static List<Violation> validateGuide(JsonParser parser, int maxViolations) throws IOException {
+        GuideValidator validator = new GuideValidator(parser, maxViolations);
+        validator.validate(validator::validateGuide);
+        return validator.violations;
+    }
+
+    /**
+     * Validates a content read from the given parser.
+     * The parser must either point to the start of the content object or not have been advanced yet.
+     * @param parser Parser to read the content from.
+     * @return All violations in order of their occurrence, empty if the input encodes a valid content.
+     * @throws IOException Failed to read from the parser.
+     */
+    public static List<Violation> validateContent(JsonParser parser) throws IOException {
+        return validateContent(parser, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Validates a content read from the given parser, stopping after a number of violations.
+     * @param parser Parser to read the content from.
+     * @param maxViolations Maximum number of violations to report.
+     * @return Violations in order of their occurrence, empty if the input encodes a valid content.
+     * @throws IOException Failed to read from the parser.
+     */
+    public static List<Violation> validateContent(JsonParser parser, int maxViolations) throws IOException {
+        GuideValidator validator = new GuideValidator(parser, maxViolations);
+        validator.validate(validator::validateContent);
+        return validator.violations;
+    }
+
+    private void validate(Validation rootValidation) throws IOException {
+        if (maxViolations <= 0) return;
+        try {
+            if (!parser.hasCurrentToken()) {
+                parser.nextToken();
+            }
+            if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+                add("", "The given input does not encode a valid JSON object.");
+                return;
+            }
+            rootValidation.validate();
+        } catch (LimitReached ex) {
+            // enough violations collected
+        } catch (JsonProcessingException ex) {
+            violations.add(new Violation(pointer(), "Malformed input: " + ex.getOriginalMessage()));
+        }
+    }
+
+    private void validateGuide() throws IOException {
+        boolean hasId = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "id":
+                    hasId = true;
+                    checkText("id");
+                    break;
+                case "content":
+                    checkStringMap("content");
+                    break;
+                case "access":
+                    checkStringArray("access", AccessEntry::new);
+                    break;
+                case "tags":
+                    checkStringArray("tags", Tag::ofString);
+                    break;
+                case "steps":
+                    checkObjectArray("steps", this::validateStep);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if (!hasId) add(pointer(), "Missing required text node [id].");
+    }
+
+    private void validateStep() throws IOException {
+        String stepPointer = pointer();
+        boolean hasId = false;
+        String type = null;
+        boolean hasTarget = false;
+        Violation targetViolation = null;
+        List<Violation> userRequestViolations = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "id":
+                    hasId = true;
+                    checkText("id");
+                    break;
+                case "type":
+                    if (parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+                        type = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "content":
+                    checkStringMap("content");
+                    break;
+                case "next":
+                    checkText("next");
+                    break;
+                case "target":
+                    hasTarget = true;
+                    targetViolation = parser.getCurrentToken() == JsonToken.VALUE_STRING ? null : new Violation(pointer(), "Invalid type of node [target], string expected.");
+                    parser.skipChildren();
+                    break;
+                case "userRequest":
+                    // only relevant for branches, the type may follow later
+                    deferred = new ArrayList<>();
+                    try {
+                        validateUserRequest();
+                        userRequestViolations = deferred;
+                    } finally {
+                        deferred = null;
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if (!hasId) add(stepPointer, "Missing required text node [id].");
+        if (type == null) {
+            add(stepPointer, "Missing or invalid field [type], string expected.");
+            return;
+        }
+        switch (type) {
+            case "action":
+            case "milestone":
+                break;
+            case "chapter":
+                if (!hasTarget) {
+                    add(stepPointer, "Missing required text node [target].");
+                } else if (targetViolation != null) {
+                    add(targetViolation);
+                }
+                break;
+            case "branch":
+                if (userRequestViolations == null) {
+                    add(stepPointer, "Missing required object node [userRequest].");
+                } else {
+                    for (Violation violation : userRequestViolations) add(violation);
+                }
+                break;
+            default:
+                add(stepPointer, "Invalid step type: " + type);
+        }
+    }
+
+    private void validateUserRequest() throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            add(pointer(), "Invalid type of node [userRequest], object expected.");
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "content":
+                    checkStringMap("userRequest.content");
+                    break;
+                case "options":
+                    checkObjectArray("userRequest.options", this::validateOption);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    private void validateOption() throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "content":
+                    checkStringMap("content");
+                    break;
+                case "next":
+                    checkText("next");
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    private void validateContent() throws IOException {
+        boolean hasId = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "id":
+                    hasId = true;
+                    checkText("id");
+                    break;
+                case "media":
+                    if (parser.getCurrentToken() == JsonToken.START_OBJECT) {
+                        validateMedia();
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "warnings":
+                    checkObjectArray("warnings", this::validateIconizedMessage);
+                    break;
+                case "hints":
+                    checkObjectArray("hints", this::validateIconizedMessage);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if (!hasId) add(pointer(), "Missing required text node [id].");
+    }
+
+    private void validateMedia() throws IOException {
+        boolean hasMimeType = false;
+        boolean hasPath = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "mimeType":
+                    hasMimeType = true;
+                    checkText("mimeType");
+                    break;
+                case "path":
+                    hasPath = true;
+                    checkText("path");
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if (!hasMimeType) add(pointer(), "Missing required text node [mimeType].");
+        if (!hasPath) add(pointer(), "Missing required text node [path].");
+    }
+
+    private void validateIconizedMessage() throws IOException {
+        boolean hasText = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "text":
+                    hasText = true;
+                    checkText("text");
+                    break;
+                case "icon":
+                    checkText("icon");
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if (!hasText) add(pointer(), "Missing required text node [text].");
+    }
+
+    private void checkText(String fieldName) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.VALUE_STRING) {
+            add(pointer(), "Invalid type of node [" + fieldName + "], string expected.");
+            parser.skipChildren();
+        }
+    }
+
+    private void checkStringMap(String fieldName) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            add(pointer(), "Invalid type of field [" + fieldName + "], object expected.");
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            if (parser.nextToken() != JsonToken.VALUE_STRING) {
+                add(pointer(), "Invalid type of entry for map [" + fieldName + "] , string expected.");
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void checkStringArray(String fieldName, Consumer<String> entryCheck) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            add(pointer(), "Invalid type of field [" + fieldName + "], array expected.");
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.getCurrentToken() != JsonToken.VALUE_STRING) {
+                add(pointer(), "Invalid entry for array [" + fieldName + "], string expected.");
+                parser.skipChildren();
+                continue;
+            }
+            try {
+                entryCheck.accept(parser.getText());
+            } catch (IllegalArgumentException ex) {
+                add(pointer(), ex.getMessage());
+            }
+        }
+    }
+
+    private void checkObjectArray(String fieldName, Validation entryValidation) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            add(pointer(), "Invalid type of field [" + fieldName + "], array expected.");
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+                add(pointer(), "Invalid entry for array [" + fieldName + "], object expected.");
+                parser.skipChildren();
+                continue;
+            }
+            entryValidation.validate();
+        }
+    }
+
+    /**
+     * Returns the pointer of the current value, or of the enclosing object after its end.
+     */
+    private String pointer() {
+        return parser.getParsingContext().pathAsPointer().toString();
+    }
+
+    private void add(String pointer, String message) {
+        add(new Violation(pointer, message));
+    }
+
+    private void add(Violation violation) {
+        if (deferred != null) {
+            deferred.add(violation);
+            return;
+        }
+        violations.add(violation);
+        if (violations.size() >= maxViolations) throw LimitReached.INSTANCE;
+    }
+
+    @FunctionalInterface
+    private interface Validation {
+        void validate() throws IOException;
+    }
+
+    /**
+     * Thrown to stop the validation once the maximum number of violations is reached.
+     */
+    private static final class LimitReached extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private static final LimitReached INSTANCE = new LimitReached();
+
+        private LimitReached() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Violation of a rule of the model.
+     */
+    public static final class Violation {
+        private final String pointer;
+        private final String message;
+
+        Violation(String pointer, String message) {
+            this.pointer = pointer;
+            this.message = message;
+        }
+
+        /**
+         * Returns the JSON pointer of the offending node, e.g., <code>/steps/3/next</code>.
+         * For missing fields the pointer refers to the object lacking the field, the empty string refers to the whole document.
+         * @return JSON pointer.
+         */
+        public String getPointer() {
+            return pointer;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return (pointer.isEmpty() ? "/" : pointer) + ": " + message;
+        }
+    }
+}
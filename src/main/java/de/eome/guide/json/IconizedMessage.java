@@ -36,11 +36,20 @@ public class IconizedMessage implements de.eome.guide.api.IconizedMessage, Updat
     public void updatePerformed() {
         if (parent != null) parent.updatePerformed();
     }
+    
+    /**
+     * Passes a change of this message to the parent.
+     * @param event Change event.
+     */
+    void changePerformed(ChangeEvent event) {
+        if (parent != null) parent.changePerformed(event);
+    }
 
     @Override
     public void setText(String text) {
+        String oldText = getText();
         json.put("text", text);
-        updatePerformed();
+        changePerformed(ChangeEvent.set(this, "text", oldText, text));
     }
 
     @Override
@@ -50,8 +59,9 @@ public class IconizedMessage implements de.eome.guide.api.IconizedMessage, Updat
 
     @Override
     public void setIcon(String path) {
+        String oldIcon = getIcon();
         json.put("icon", path);
-        updatePerformed();
+        changePerformed(ChangeEvent.set(this, "icon", oldIcon, path));
     }
 
     @Override
@@ -0,0 +1,88 @@
+package de.eome.guide.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Last update timestamp of a guide or content.
+ * A stamp only keeps the epoch nanoseconds, so updates never format dates. The ISO string is written into the wrapped JSON by
+ * {@link #flush(ObjectNode)} on the first serialization after a stamp, guarded so that several threads may serialize an unchanged guide or content at once.
+ * The timestamp is only parsed from the JSON when it is requested for the first time.
+ */
+final class LastUpdate {
+    private static final String FIELD = "lastUpdate";
+
+    private Clock clock;
+    private long epochNanos;
+    private ZoneId zone;
+    private boolean isStamped;
+    private boolean isParsed;
+    private OffsetDateTime value;
+    private volatile boolean isPending;
+
+    /**
+     * Creates a timestamp which is parsed lazily from the JSON passed to {@link #get(ObjectNode)}.
+     */
+    LastUpdate(Clock clock) {
+        this.clock = clock;
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Sets the timestamp to the current instant of the clock.
+     * The JSON is not touched until the next {@link #flush(ObjectNode)}.
+     */
+    synchronized void stamp() {
+        Instant now = clock.instant();
+        epochNanos = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+        zone = clock.getZone();
+        isStamped = true;
+        isParsed = true;
+        value = null;
+        isPending = true;
+    }
+
+    /**
+     * Writes the timestamp into the given JSON if it was stamped since the last flush.
+     */
+    void flush(ObjectNode json) {
+        if (isPending) {
+            synchronized (this) {
+                if (isPending) {
+                    json.put(FIELD, get(json).toString());
+                    isPending = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the timestamp, parsing it from the given JSON if it was not stamped yet.
+     * @return Timestamp or <code>null</code> if none is stored or it is invalid.
+     */
+    synchronized OffsetDateTime get(ObjectNode json) {
+        if (!isParsed) {
+            isParsed = true;
+            JsonNode node = json.path(FIELD);
+            if (node.isTextual()) {
+                try {
+                    value = OffsetDateTime.parse(node.asText());
+                } catch (DateTimeParseException ex) {
+                    value = null;
+                }
+            }
+        }
+        if (value == null && isStamped) {
+            value = OffsetDateTime.ofInstant(Instant.ofEpochSecond(0, epochNanos), zone);
+        }
+        return value;
+    }
+}
@@ -35,6 +35,14 @@ public class Media implements de.eome.guide.api.Media, UpdateListener {
         if (parent != null) parent.updatePerformed();
     }
     
+    /**
+     * Passes a change of this media object to the parent.
+     * @param event Change event.
+     */
+    void changePerformed(ChangeEvent event) {
+        if (parent != null) parent.changePerformed(event);
+    }
+    
     private static void validate(ObjectNode json) throws IllegalArgumentException {
         JsonUtil.validateTextNode(json.path("mimeType"), "mimeType", false);
         JsonUtil.validateTextNode(json.path("path"), "path", false);
@@ -42,8 +50,9 @@ public class Media implements de.eome.guide.api.Media, UpdateListener {
 
     @Override
     public void setMimeType(String mimeType) {
+        String oldMimeType = getMimeType();
         json.put("mimeType", mimeType);
-        updatePerformed();
+        changePerformed(ChangeEvent.set(this, "mimeType", oldMimeType, mimeType));
     }
 
     @Override
@@ -53,8 +62,9 @@ public class Media implements de.eome.guide.api.Media, UpdateListener {
 
     @Override
     public void setPath(String url) {
+        String oldPath = getPath();
         json.put("path", url);
-        updatePerformed();
+        changePerformed(ChangeEvent.set(this, "path", oldPath, url));
     }
 
     @Override
@@ -1,6 +1,7 @@
 package de.eome.guide.json;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.Map;
 
 /**
  * JSON wrapper implementation of the milestone interface model-
@@ -15,6 +16,10 @@ public class Milestone extends Step implements de.eome.guide.api.Milestone {
         validate(json);
     }
     
+    Milestone(ObjectNode json, Map<String, String> content) {
+        super(json, content);
+    }
+    
     private static void validate(ObjectNode json) throws IllegalArgumentException {
         // nothing;
     }
@@ -36,6 +36,11 @@ public class Option implements de.eome.guide.api.Option, UpdateListener {
         }
     }
     
+    Option(ObjectNode json, Map<String, String> content) {
+        this.json = json;
+        this.content = content;
+    }
+    
     public void setParent(UserRequest userRequest) {
         parent = userRequest;
     }
@@ -49,6 +54,14 @@ public class Option implements de.eome.guide.api.Option, UpdateListener {
         if (parent != null) parent.updatePerformed();
     }
     
+    /**
+     * Passes a change of this option or one of its children to the parent.
+     * @param event Change event.
+     */
+    void changePerformed(ChangeEvent event) {
+        if (parent != null) parent.changePerformed(event);
+    }
+    
     private static void validate(ObjectNode json) throws IllegalArgumentException {
         JsonUtil.validateStringMap(json.path("content"), "content", true);
         JsonUtil.validateTextNode(json.path("next"), "next", true);
@@ -66,29 +79,31 @@ public class Option implements de.eome.guide.api.Option, UpdateListener {
 
     @Override
     public void setContentId(String languageId, String contentId) {
-        content.put(languageId, contentId);
+        String oldContentId = content.put(languageId, contentId);
         JsonUtil.getOrCreateObject(json, "content").set(languageId, JsonNodeFactory.instance.textNode(contentId));
-        updatePerformed();
+        changePerformed(ChangeEvent.setEntry(this, "content", languageId, oldContentId, contentId));
     }
 
     @Override
     public void removeContentId(String languageId) {
         if (!content.containsKey(languageId)) return;
-        content.remove(languageId);
+        String oldContentId = content.remove(languageId);
         JsonUtil.getOrCreateObject(json, "content").remove(languageId);
-        updatePerformed();
+        changePerformed(ChangeEvent.removeEntry(this, "content", languageId, oldContentId));
     }
 
     @Override
     public void setNext(String stepId) {
+        String oldNext = getNext();
         json.put("next", stepId);
-        updatePerformed();
+        changePerformed(ChangeEvent.set(this, "next", oldNext, stepId));
     }
 
     @Override
     public void removeNext() {
+        String oldNext = getNext();
         json.remove("next");
-        updatePerformed();
+        changePerformed(ChangeEvent.remove(this, "next", oldNext));
     }
 
     @Override
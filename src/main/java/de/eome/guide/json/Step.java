@@ -37,6 +37,14 @@ public abstract class Step implements de.eome.guide.api.Step, UpdateListener {
         if (parent != null) parent.updatePerformed();
     }
     
+    /**
+     * Passes a change of this step or one of its children to the parent.
+     * @param event Change event.
+     */
+    void changePerformed(ChangeEvent event) {
+        if (parent != null) parent.changePerformed(event);
+    }
+    
     protected Step(ObjectNode json) throws IllegalArgumentException {
         validate(json);
         this.json = json;
@@ -51,6 +59,14 @@ public abstract class Step implements de.eome.guide.api.Step, UpdateListener {
         }
     }
     
+    /**
+     * Creates a step from an already validated JSON object and its content ids.
+     */
+    Step(ObjectNode json, Map<String, String> content) {
+        this.json = json;
+        this.content = content;
+    }
+    
     private static void validate(ObjectNode json) throws IllegalArgumentException {
         JsonUtil.validateTextNode(json.path("id"), "id", false);
         JsonUtil.validateTextNode(json.path("type"), "type", false);
@@ -75,7 +91,7 @@ public abstract class Step implements de.eome.guide.api.Step, UpdateListener {
                 step = new Chapter(stepNode);
                 break;
             case "branch":
-                JsonNode userRequestNode = stepNode.get("userRequest");
+                JsonNode userRequestNode = stepNode.path("userRequest");
                 if (userRequestNode.isMissingNode() || !userRequestNode.isObject()) {
                     throw new IllegalArgumentException("Wrong or missing userReques field, expects object.");
                 }
@@ -92,6 +108,17 @@ public abstract class Step implements de.eome.guide.api.Step, UpdateListener {
     public String getId() {
         return json.path("id").asText(null);
     }
+    
+    /**
+     * Changes the id of this step.
+     * @param id New step id.
+     */
+    public void setId(String id) {
+        String oldId = getId();
+        json.put("id", id);
+        if (parent != null) parent.stepIdChanged(this);
+        changePerformed(ChangeEvent.set(this, "id", oldId, id));
+    }
 
     @Override
     public String getContentId(String languageId) {
@@ -105,32 +132,34 @@ public abstract class Step implements de.eome.guide.api.Step, UpdateListener {
 
     @Override
     public void setContentId(String languageId, String contentId) {
-        content.put(languageId, contentId);
+        String oldContentId = content.put(languageId, contentId);
         JsonUtil.getOrCreateObject(json, "content").set(languageId, JsonNodeFactory.instance.textNode(contentId));
-        updatePerformed();
+        changePerformed(ChangeEvent.setEntry(this, "content", languageId, oldContentId, contentId));
     }
 
     @Override
     public void removeContentId(String languageId) {
         if (!content.containsKey(languageId)) return;
-        content.remove(languageId);
+        String oldContentId = content.remove(languageId);
         JsonUtil.getOrCreateObject(json, "content").remove(languageId);
         if (content.isEmpty()) {
             json.remove("content");
         }
-        updatePerformed();
+        changePerformed(ChangeEvent.removeEntry(this, "content", languageId, oldContentId));
     }
 
     @Override
     public void setNext(String stepId) {
+        String oldNext = getNext();
         json.put("next", stepId);
-        updatePerformed();
+        changePerformed(ChangeEvent.set(this, "next", oldNext, stepId));
     }
 
     @Override
     public void removeNext() {
+        String oldNext = getNext();
         json.remove("next");
-        updatePerformed();
+        changePerformed(ChangeEvent.remove(this, "next", oldNext));
     }
 
     @Override
@@ -0,0 +1,286 @@
+package de.eome.guide.json;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable flow graph of the steps of a guide, addressing steps by their position.
+ * A step continues with the step referenced by its <code>next</code> field or, if it has none, with the following step. The last step without
+ * <code>next</code> ends the guide. A user request continues with the steps referenced by its options instead, an option without <code>next</code>
+ * continues like the user request itself. References to unknown step ids are dropped, the first step is the start of the guide.
+ * The successors of all steps are stored in one array, so all queries run in linear time of steps and edges without resolving ids.
+ * Instances are obtained from {@link Guide#getStepGraph()} and may be shared between threads.
+ */
+public final class StepGraph {
+    private final String[] stepIds;
+    private final String[] types;
+    private final String[] targets;
+    private final Map<String, Integer> positions;
+    private final int[] defaultSuccessors;
+    private final int[] optionOffsets;
+    private final int[] optionSuccessors;
+    private final int[] edgeOffsets;
+    private final int[] edges;
+    private volatile int[] topologicalOrder;
+
+    StepGraph(List<Step> steps) {
+        int size = steps.size();
+        stepIds = new String[size];
+        types = new String[size];
+        targets = new String[size];
+        positions = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            Step step = steps.get(i);
+            stepIds[i] = step.getId();
+            types[i] = step.getType();
+            if (step instanceof Chapter) targets[i] = ((Chapter) step).getTarget();
+            positions.putIfAbsent(stepIds[i], i);
+        }
+
+        defaultSuccessors = new int[size];
+        optionOffsets = new int[size + 1];
+        int optionCount = 0;
+        for (int i = 0; i < size; i++) {
+            Step step = steps.get(i);
+            String next = step.getNext();
+            defaultSuccessors[i] = next != null ? indexOf(next) : (i + 1 < size ? i + 1 : -1);
+            optionOffsets[i] = optionCount;
+            if (step instanceof UserRequest) optionCount += ((UserRequest) step).getOptions().size();
+        }
+        optionOffsets[size] = optionCount;
+        optionSuccessors = new int[optionCount];
+        for (int i = 0; i < size; i++) {
+            if (!(steps.get(i) instanceof UserRequest)) continue;
+            List<Option> options = ((UserRequest) steps.get(i)).getOptions();
+            for (int j = 0; j < options.size(); j++) {
+                String next = options.get(j).getNext();
+                optionSuccessors[optionOffsets[i] + j] = next != null ? indexOf(next) : defaultSuccessors[i];
+            }
+        }
+
+        edgeOffsets = new int[size + 1];
+        int[] buffer = new int[size + optionCount];
+        int edgeCount = 0;
+        for (int i = 0; i < size; i++) {
+            edgeOffsets[i] = edgeCount;
+            if (steps.get(i) instanceof UserRequest) {
+                for (int k = optionOffsets[i]; k < optionOffsets[i + 1]; k++) {
+                    if (optionSuccessors[k] >= 0) buffer[edgeCount++] = optionSuccessors[k];
+                }
+            } else if (defaultSuccessors[i] >= 0) {
+                buffer[edgeCount++] = defaultSuccessors[i];
+            }
+        }
+        edgeOffsets[size] = edgeCount;
+        edges = Arrays.copyOf(buffer, edgeCount);
+    }
+
+    /**
+     * Returns the number of steps.
+     * @return Number of steps.
+     */
+    public int size() {
+        return stepIds.length;
+    }
+
+    /**
+     * Returns the position of the first step with the given id.
+     * @param stepId Step id.
+     * @return Position or <code>-1</code> if there is no step with the id.
+     */
+    public int indexOf(String stepId) {
+        Integer position = positions.get(stepId);
+        return position != null ? position : -1;
+    }
+
+    public String getStepId(int step) {
+        return stepIds[step];
+    }
+
+    /**
+     * Returns the type of a step, i.e., <code>action</code>, <code>milestone</code>, <code>chapter</code> or <code>branch</code>.
+     * @param step Step position.
+     * @return Step type.
+     */
+    public String getType(int step) {
+        return types[step];
+    }
+
+    /**
+     * Returns the guide id a chapter refers to.
+     * @param step Step position.
+     * @return Target guide id or <code>null</code> if the step is no chapter.
+     */
+    public String getTarget(int step) {
+        return targets[step];
+    }
+
+    /**
+     * Returns the step following a step that is no user request, or the step following options of a user request without <code>next</code>.
+     * @param step Step position.
+     * @return Position of the following step or <code>-1</code> if the guide ends or the step refers to an unknown step.
+     */
+    public int getNext(int step) {
+        return defaultSuccessors[step];
+    }
+
+    /**
+     * Returns the number of options of a step.
+     * @param step Step position.
+     * @return Number of options, <code>0</code> if the step is no user request.
+     */
+    public int getOptionCount(int step) {
+        return optionOffsets[step + 1] - optionOffsets[step];
+    }
+
+    /**
+     * Returns the step following the selection of an option.
+     * @param step Position of the user request.
+     * @param option Position of the option.
+     * @return Position of the following step or <code>-1</code> if the guide ends or the option refers to an unknown step.
+     * @throws IndexOutOfBoundsException The step has no option at the given position.
+     */
+    public int getOptionNext(int step, int option) {
+        if (option < 0 || option >= getOptionCount(step)) {
+            throw new IndexOutOfBoundsException("Step " + step + " has no option " + option + ".");
+        }
+        return optionSuccessors[optionOffsets[step] + option];
+    }
+
+    /**
+     * Returns the number of successors of a step. Several options leading to the same step count as several successors.
+     * @param step Step position.
+     * @return Number of successors.
+     */
+    public int getSuccessorCount(int step) {
+        return edgeOffsets[step + 1] - edgeOffsets[step];
+    }
+
+    /**
+     * Returns a successor of a step.
+     * @param step Step position.
+     * @param successor Position of the successor between <code>0</code> and {@link #getSuccessorCount(int)}.
+     * @return Position of the successor step.
+     */
+    public int getSuccessor(int step, int successor) {
+        return edges[edgeOffsets[step] + successor];
+    }
+
+    /**
+     * Returns the steps reachable from a step, including the step itself.
+     * @param step Position of the step to start from.
+     * @return Set of reachable step positions.
+     */
+    public BitSet reachableFrom(int step) {
+        BitSet reachable = new BitSet(size());
+        if (size() == 0) return reachable;
+        int[] stack = new int[size()];
+        int top = 0;
+        stack[top++] = step;
+        reachable.set(step);
+        while (top > 0) {
+            int current = stack[--top];
+            for (int e = edgeOffsets[current]; e < edgeOffsets[current + 1]; e++) {
+                int target = edges[e];
+                if (!reachable.get(target)) {
+                    reachable.set(target);
+                    stack[top++] = target;
+                }
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Returns the steps not reachable from the first step.
+     * @return Set of unreachable step positions.
+     */
+    public BitSet getUnreachable() {
+        BitSet unreachable = size() > 0 ? reachableFrom(0) : new BitSet();
+        unreachable.flip(0, size());
+        return unreachable;
+    }
+
+    /**
+     * Returns a shortest path between two steps, e.g., from the start to a milestone.
+     * @param from Position of the first step.
+     * @param to Position of the last step.
+     * @return Step positions of the path including both ends or <code>null</code> if the last step is not reachable from the first one.
+     */
+    public int[] findPath(int from, int to) {
+        int[] predecessors = new int[size()];
+        Arrays.fill(predecessors, -1);
+        predecessors[from] = from;
+        int[] queue = new int[size()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = from;
+        while (head < tail && predecessors[to] < 0) {
+            int current = queue[head++];
+            for (int e = edgeOffsets[current]; e < edgeOffsets[current + 1]; e++) {
+                int target = edges[e];
+                if (predecessors[target] < 0) {
+                    predecessors[target] = current;
+                    queue[tail++] = target;
+                }
+            }
+        }
+        if (predecessors[to] < 0) return null;
+        int length = 1;
+        for (int step = to; step != from; step = predecessors[step]) length++;
+        int[] path = new int[length];
+        for (int step = to; length > 0; step = predecessors[step]) path[--length] = step;
+        return path;
+    }
+
+    /**
+     * Checks whether the flow contains a loop, e.g., an option leading back to a previous step.
+     * @return <code>true</code> if the graph has a cycle, otherwise <code>false</code>.
+     */
+    public boolean hasCycle() {
+        return topologicalOrder() == null;
+    }
+
+    /**
+     * Returns the steps ordered such that every step comes before its successors.
+     * @return Copy of the ordered step positions or <code>null</code> if the graph has a cycle.
+     */
+    public int[] getTopologicalOrder() {
+        int[] order = topologicalOrder();
+        return order != null ? order.clone() : null;
+    }
+
+    private int[] topologicalOrder() {
+        int[] order = topologicalOrder;
+        if (order == null) {
+            order = sortTopologically();
+            topologicalOrder = order;
+        }
+        return order.length == size() ? order : null;
+    }
+
+    /**
+     * Sorts the steps with Kahn's algorithm. A shorter result than the number of steps marks a cycle.
+     */
+    private int[] sortTopologically() {
+        int size = size();
+        int[] inDegrees = new int[size];
+        for (int target : edges) inDegrees[target]++;
+        int[] order = new int[size];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < size; i++) {
+            if (inDegrees[i] == 0) order[tail++] = i;
+        }
+        while (head < tail) {
+            int current = order[head++];
+            for (int e = edgeOffsets[current]; e < edgeOffsets[current + 1]; e++) {
+                if (--inDegrees[edges[e]] == 0) order[tail++] = edges[e];
+            }
+        }
+        return tail == size ? order : Arrays.copyOf(order, tail);
+    }
+}
@@ -64,7 +64,10 @@ public class Tag implements de.eome.guide.api.Tag {
     
     @Override
     public boolean equals(Object o) {
-        return o != null ? toString().equals(o.toString()) : false;
+        if (this == o) return true;
+        if (!(o instanceof de.eome.guide.api.Tag)) return false;
+        de.eome.guide.api.Tag other = (de.eome.guide.api.Tag) o;
+        return type == other.getType() && Objects.equals(value, other.getValue());
     }
 
     @Override
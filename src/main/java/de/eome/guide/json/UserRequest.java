@@ -33,8 +33,8 @@ public class UserRequest extends Branch implements de.eome.guide.api.UserRequest
         validate(json);
         this.userRequestNode = (ObjectNode) json.path("userRequest");
         this.content = new LinkedHashMap<>();
-        if (json.path("content").isObject()) {
-            ObjectNode contentObject = (ObjectNode) json.path("content");
+        if (userRequestNode.path("content").isObject()) {
+            ObjectNode contentObject = (ObjectNode) userRequestNode.path("content");
             Iterator<Map.Entry<String, JsonNode>> fieldIterator = contentObject.fields();
             while (fieldIterator.hasNext()) {
                 Map.Entry<String, JsonNode> field = fieldIterator.next();
@@ -42,12 +42,21 @@ public class UserRequest extends Branch implements de.eome.guide.api.UserRequest
             }
         }
         this.options = new ArrayList<>();
-        if (json.path("options").isArray()) {
-            ArrayNode optionsArray = (ArrayNode) json.path("options");
+        if (userRequestNode.path("options").isArray()) {
+            ArrayNode optionsArray = (ArrayNode) userRequestNode.path("options");
             optionsArray.forEach(entry -> {
                 options.add(new Option((ObjectNode) entry));
             });
         }
+        options.forEach(option -> option.setParent(this));
+    }
+    
+    UserRequest(ObjectNode json, Map<String, String> stepContent, ObjectNode userRequestNode, Map<String, String> content, List<Option> options) {
+        super(json, stepContent);
+        this.userRequestNode = userRequestNode;
+        this.content = content;
+        this.options = options;
+        options.forEach(option -> option.setParent(this));
     }
     
     private static void validate(ObjectNode json) throws IllegalArgumentException {
@@ -70,20 +79,20 @@ public class UserRequest extends Branch implements de.eome.guide.api.UserRequest
 
     @Override
     public void setContentId(String languageId, String contentId) {
-        content.put(languageId, contentId);
+        String oldContentId = content.put(languageId, contentId);
         JsonUtil.getOrCreateObject(userRequestNode, "content").put(languageId, contentId);
-        updatePerformed();
+        changePerformed(ChangeEvent.setEntry(this, "content", languageId, oldContentId, contentId));
     }
 
     @Override
     public void removeContentId(String languageId) {
         if (!content.containsKey(languageId)) return;
-        content.remove(languageId);
+        String oldContentId = content.remove(languageId);
         JsonUtil.getOrCreateObject(userRequestNode, "content").remove(languageId);
         if (content.isEmpty()) {
             json.remove("content");
         }
-        updatePerformed();
+        changePerformed(ChangeEvent.removeEntry(this, "content", languageId, oldContentId));
     }
 
     @Override
@@ -100,7 +109,7 @@ public class UserRequest extends Branch implements de.eome.guide.api.UserRequest
         optionImpl.setParent(this);
         options.add(optionImpl);
         JsonUtil.getOrCreateArray(userRequestNode, "options").add(optionImpl.asJson());
-        updatePerformed();
+        changePerformed(ChangeEvent.addElement(this, "options", options.size() - 1, optionImpl));
     }
 
     @Override
@@ -109,14 +118,17 @@ public class UserRequest extends Branch implements de.eome.guide.api.UserRequest
             throw new UnsupportedOperationException("Unsupported implementation type, expects instance of \"de.imc.ap.guide.json.Option\".");
         }
         Option optionImpl = (Option) option;
-        if (options.contains(optionImpl)) {
-            options.remove(optionImpl);
+        int index = options.indexOf(optionImpl);
+        if (index >= 0) {
+            options.remove(index);
             optionImpl.setParent(null);
             JsonNode optionsArray = userRequestNode.get("options");
             if (!optionsArray.isMissingNode()) {
                 JsonUtil.removeFromArray((ArrayNode) optionsArray, optionImpl.asJson());
             }
+            changePerformed(ChangeEvent.removeElement(this, "options", index, optionImpl));
+        } else {
+            updatePerformed();
         }
-        updatePerformed();
     }
 }
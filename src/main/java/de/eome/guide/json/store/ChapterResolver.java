@@ -0,0 +1,345 @@
+package de.eome.guide.json.store;
+
+import de.eome.guide.json.ChangeEvent;
+import de.eome.guide.json.ChangeListener;
+import de.eome.guide.json.Chapter;
+import de.eome.guide.json.Guide;
+import de.eome.guide.json.Step;
+import de.eome.guide.json.util.GuideUtil;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves chapters across guides.
+ * Guides are loaded lazily through a loader, each one at most once, and kept together with the guide ids their chapters refer to.
+ * These dependencies form a graph over guide ids, which is used to detect cycles and to expand a guide into a flat list of its steps with the steps
+ * of referenced guides nested after their chapters. Expanded views are cached and dropped as soon as a step or chapter target of any guide
+ * they contain changes, or a contained guide is invalidated.
+ * All methods are synchronized, guides are loaded while holding the lock.
+ */
+public class ChapterResolver {
+    private final GuideLoader loader;
+    private final Map<String, Node> nodes;
+    private final Map<String, Set<String>> dependents;
+    private final Map<String, List<ExpandedStep>> views;
+
+    /**
+     * Creates a resolver.
+     * @param loader Loader to load referenced guides with.
+     */
+    public ChapterResolver(GuideLoader loader) {
+        this.loader = loader;
+        this.nodes = new HashMap<>();
+        this.dependents = new HashMap<>();
+        this.views = new HashMap<>();
+    }
+
+    /**
+     * Returns a guide, loading it if it was not loaded yet.
+     * @param guideId Guide id.
+     * @return Guide or <code>null</code> if the loader does not know the id.
+     * @throws IOException Failed to load the guide.
+     */
+    public synchronized Guide getGuide(String guideId) throws IOException {
+        Node node = node(guideId);
+        return node != null ? node.guide : null;
+    }
+
+    /**
+     * Returns the ids of the guides the chapters of a guide refer to.
+     * @param guideId Guide id.
+     * @return Target guide ids in order of their first reference, empty if the guide is unknown.
+     * @throws IOException Failed to load the guide.
+     */
+    public synchronized Set<String> getDependencies(String guideId) throws IOException {
+        Node node = node(guideId);
+        return node != null ? Collections.unmodifiableSet(node.targets()) : Collections.emptySet();
+    }
+
+    /**
+     * Returns the ids of all guides reachable from a guide through chapters, loading them if necessary.
+     * @param guideId Guide id.
+     * @return Guide ids excluding the given one unless it is part of a cycle, including ids unknown to the loader.
+     * @throws IOException Failed to load a guide.
+     */
+    public synchronized Set<String> getTransitiveDependencies(String guideId) throws IOException {
+        Set<String> reachable = new LinkedHashSet<>();
+        ArrayDeque<String> queue = new ArrayDeque<>();
+        queue.add(guideId);
+        while (!queue.isEmpty()) {
+            Node node = node(queue.poll());
+            if (node == null) continue;
+            for (String target : node.targets()) {
+                if (reachable.add(target)) queue.add(target);
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Searches a cycle of chapter references reachable from a guide.
+     * @param guideId Guide id.
+     * @return Guide ids of the cycle with the first id repeated at the end, e.g., <code>[a, b, a]</code>, or an empty list if there is no cycle.
+     * @throws IOException Failed to load a guide.
+     */
+    public synchronized List<String> findCycle(String guideId) throws IOException {
+        Set<String> finished = new HashSet<>();
+        List<String> path = new ArrayList<>();
+        Set<String> onPath = new HashSet<>();
+        ArrayDeque<ArrayDeque<String>> pending = new ArrayDeque<>();
+        path.add(guideId);
+        onPath.add(guideId);
+        pending.push(new ArrayDeque<>(targetsOf(guideId)));
+        while (!pending.isEmpty()) {
+            String target = pending.peek().poll();
+            if (target == null) {
+                pending.pop();
+                String done = path.remove(path.size() - 1);
+                onPath.remove(done);
+                finished.add(done);
+            } else if (onPath.contains(target)) {
+                List<String> cycle = new ArrayList<>(path.subList(path.indexOf(target), path.size()));
+                cycle.add(target);
+                return cycle;
+            } else if (!finished.contains(target)) {
+                path.add(target);
+                onPath.add(target);
+                pending.push(new ArrayDeque<>(targetsOf(target)));
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private Set<String> targetsOf(String guideId) throws IOException {
+        Node node = node(guideId);
+        return node != null ? node.targets() : Collections.emptySet();
+    }
+
+    /**
+     * Expands a guide into the flat list of its steps, every chapter followed by the expanded steps of its target guide.
+     * A chapter is not expanded if its target guide is unknown or already being expanded on the way to the chapter, so cycles end there.
+     * @param guideId Guide id.
+     * @return Cached unmodifiable list of steps in order of appearance or <code>null</code> if the guide is unknown.
+     * @throws IOException Failed to load a guide.
+     */
+    public synchronized List<ExpandedStep> expand(String guideId) throws IOException {
+        List<ExpandedStep> view = views.get(guideId);
+        if (view == null) {
+            if (node(guideId) == null) return null;
+            List<ExpandedStep> steps = new ArrayList<>();
+            expand(guideId, 0, new HashSet<>(), steps);
+            view = Collections.unmodifiableList(steps);
+            views.put(guideId, view);
+        }
+        return view;
+    }
+
+    private void expand(String guideId, int depth, Set<String> expanding, List<ExpandedStep> steps) throws IOException {
+        expanding.add(guideId);
+        Node node = node(guideId);
+        node.targets();
+        for (Step step : node.guide.getSteps()) {
+            if (!(step instanceof Chapter)) {
+                steps.add(new ExpandedStep(guideId, step, depth, false));
+                continue;
+            }
+            String target = ((Chapter) step).getTarget();
+            boolean expandable = target != null && !expanding.contains(target) && node(target) != null;
+            steps.add(new ExpandedStep(guideId, step, depth, !expandable));
+            if (expandable) expand(target, depth + 1, expanding, steps);
+        }
+        expanding.remove(guideId);
+    }
+
+    /**
+     * Drops a guide, e.g., after its stored version changed, so it is loaded again on the next access.
+     * All expanded views containing the guide or a chapter referring to it are dropped as well.
+     * @param guideId Guide id.
+     */
+    public synchronized void invalidate(String guideId) {
+        Node node = nodes.remove(guideId);
+        if (node != null) {
+            node.guide.removeChangeListener(node);
+            node.clearTargets();
+        }
+        invalidateViews(guideId);
+    }
+
+    public synchronized void invalidateAll() {
+        for (Node node : nodes.values()) {
+            node.guide.removeChangeListener(node);
+        }
+        nodes.clear();
+        dependents.clear();
+        views.clear();
+    }
+
+    /**
+     * Drops the views of the guide and of all guides depending on it directly or indirectly.
+     */
+    private void invalidateViews(String guideId) {
+        Set<String> visited = new HashSet<>();
+        ArrayDeque<String> queue = new ArrayDeque<>();
+        visited.add(guideId);
+        queue.add(guideId);
+        while (!queue.isEmpty()) {
+            String current = queue.poll();
+            views.remove(current);
+            for (String dependent : dependents.getOrDefault(current, Collections.emptySet())) {
+                if (visited.add(dependent)) queue.add(dependent);
+            }
+        }
+    }
+
+    private Node node(String guideId) throws IOException {
+        Node node = nodes.get(guideId);
+        if (node == null) {
+            Guide guide = loader.load(guideId);
+            if (guide == null) return null;
+            node = new Node(guideId, guide);
+            nodes.put(guideId, node);
+            guide.addChangeListener(node);
+        }
+        return node;
+    }
+
+    private synchronized void guideChanged(Node node) {
+        if (nodes.get(node.guideId) != node) return;
+        invalidateViews(node.guideId);
+        node.clearTargets();
+    }
+
+    /**
+     * Creates a loader reading guides from <code>&lt;guideId&gt;.json</code> files of a directory.
+     * @param directory Directory holding the guide files.
+     * @return Guide loader.
+     */
+    public static GuideLoader fileLoader(Path directory) {
+        return guideId -> {
+            Path file = directory.resolve(guideId + ".json");
+            if (!Files.isRegularFile(file)) return null;
+            try {
+                return GuideUtil.readGuide(file.toFile());
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("Failed to read guide " + guideId + ".", ex);
+            }
+        };
+    }
+
+    /**
+     * Loads guides for a resolver, e.g., <code>guideStore::get</code>.
+     */
+    public interface GuideLoader {
+
+        /**
+         * Loads a guide.
+         * @param guideId Guide id.
+         * @return Loaded guide or <code>null</code> if the id is unknown.
+         * @throws IOException Failed to load the guide.
+         */
+        public Guide load(String guideId) throws IOException;
+    }
+
+    /**
+     * Step of an expanded guide.
+     */
+    public static final class ExpandedStep {
+        private final String guideId;
+        private final Step step;
+        private final int depth;
+        private final boolean unresolved;
+
+        private ExpandedStep(String guideId, Step step, int depth, boolean unresolved) {
+            this.guideId = guideId;
+            this.step = step;
+            this.depth = depth;
+            this.unresolved = unresolved;
+        }
+
+        /**
+         * Returns the id of the guide the step belongs to.
+         * @return Guide id.
+         */
+        public String getGuideId() {
+            return guideId;
+        }
+
+        public Step getStep() {
+            return step;
+        }
+
+        /**
+         * Returns the number of chapters the step is nested in, <code>0</code> for steps of the expanded guide itself.
+         * @return Nesting depth.
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * Checks whether the step is a chapter that was not expanded, because its target is unknown or would close a cycle.
+         * @return <code>true</code> if the step is an unexpanded chapter, otherwise <code>false</code>.
+         */
+        public boolean isUnresolved() {
+            return unresolved;
+        }
+    }
+
+    /**
+     * Loaded guide with the guide ids its chapters refer to, which are collected on demand and registered as reverse edges.
+     */
+    private final class Node implements ChangeListener {
+        private final String guideId;
+        private final Guide guide;
+        private Set<String> targets;
+
+        private Node(String guideId, Guide guide) {
+            this.guideId = guideId;
+            this.guide = guide;
+        }
+
+        private Set<String> targets() {
+            if (targets == null) {
+                targets = new LinkedHashSet<>();
+                for (Step step : guide.getSteps()) {
+                    if (step instanceof Chapter && ((Chapter) step).getTarget() != null) {
+                        targets.add(((Chapter) step).getTarget());
+                    }
+                }
+                for (String target : targets) {
+                    dependents.computeIfAbsent(target, key -> new HashSet<>()).add(guideId);
+                }
+            }
+            return targets;
+        }
+
+        private void clearTargets() {
+            if (targets == null) return;
+            for (String target : targets) {
+                Set<String> targetDependents = dependents.get(target);
+                if (targetDependents != null) {
+                    targetDependents.remove(guideId);
+                    if (targetDependents.isEmpty()) dependents.remove(target);
+                }
+            }
+            targets = null;
+        }
+
+        @Override
+        public void changePerformed(ChangeEvent event) {
+            if ("steps".equals(event.getProperty()) || "target".equals(event.getProperty())) {
+                guideChanged(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package de.eome.guide.json.store;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.eome.guide.json.Content;
+import de.eome.guide.json.Guide;
+import de.eome.guide.json.Option;
+import de.eome.guide.json.Step;
+import de.eome.guide.json.UserRequest;
+import de.eome.guide.json.util.GuideUtil;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Resolves content ids to contents through a loader, caching the loaded contents.
+ * The cache is bounded by the total weight of its entries and evicts the least recently used entries first.
+ * A cached entry is revalidated against the version reported by the loader, e.g., the file modification time, before it is returned,
+ * at most once per revalidation interval. All methods are thread-safe, contents are loaded outside of the cache lock.
+ */
+public class ContentResolver {
+    private final ContentLoader loader;
+    private final long maxWeight;
+    private final long revalidationNanos;
+    private final ToLongFunction<Content> weigher;
+    private final LinkedHashMap<String, Entry> entries;
+    private long weight;
+
+    /**
+     * Creates a resolver revalidating entries on every access and weighing contents by their approximate size in characters.
+     * @param loader Loader to load contents with.
+     * @param maxWeight Maximum total weight of the cached contents.
+     */
+    public ContentResolver(ContentLoader loader, long maxWeight) {
+        this(loader, maxWeight, Duration.ZERO, ContentResolver::estimateWeight);
+    }
+
+    /**
+     * Creates a resolver.
+     * @param loader Loader to load contents with.
+     * @param maxWeight Maximum total weight of the cached contents.
+     * @param revalidationInterval Minimum time between two version checks of the same entry.
+     * @param weigher Function computing the weight of a content.
+     */
+    public ContentResolver(ContentLoader loader, long maxWeight, Duration revalidationInterval, ToLongFunction<Content> weigher) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("The maximum weight must not be negative.");
+        }
+        this.loader = loader;
+        this.maxWeight = maxWeight;
+        this.revalidationNanos = revalidationInterval.toNanos();
+        this.weigher = weigher;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the content with the given id, loading it if it is not cached or its cached version is outdated.
+     * @param contentId Content id.
+     * @return Content or <code>null</code> if the loader does not know the id.
+     * @throws IOException Failed to load the content.
+     */
+    public Content resolve(String contentId) throws IOException {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(contentId);
+        }
+        long now = System.nanoTime();
+        if (entry != null && now - entry.validatedNanos < revalidationNanos) {
+            return entry.content;
+        }
+        long version = loader.version(contentId);
+        if (entry != null && version == entry.version) {
+            entry.validatedNanos = now;
+            return entry.content;
+        }
+        Content content = loader.load(contentId);
+        if (content == null) {
+            invalidate(contentId);
+        } else {
+            put(contentId, content, version);
+        }
+        return content;
+    }
+
+    /**
+     * Resolves the contents of a guide for a language: the guide content, the step contents and the option contents of user requests.
+     * Every content id is resolved once, even if it is referenced several times.
+     * @param guide Guide to resolve the contents of.
+     * @param languageId Language to resolve the contents for.
+     * @return Map of content ids to contents in order of their first reference, ids unknown to the loader are omitted.
+     * @throws IOException Failed to load a content.
+     */
+    public Map<String, Content> resolveAll(Guide guide, String languageId) throws IOException {
+        Set<String> contentIds = new LinkedHashSet<>();
+        addContentId(contentIds, guide.getContentId(languageId));
+        for (Step step : guide.getSteps()) {
+            addContentId(contentIds, step.getContentId(languageId));
+            if (step instanceof UserRequest) {
+                for (Option option : ((UserRequest) step).getOptions()) {
+                    addContentId(contentIds, option.getContentId(languageId));
+                }
+            }
+        }
+        Map<String, Content> contents = new LinkedHashMap<>();
+        for (String contentId : contentIds) {
+            Content content = resolve(contentId);
+            if (content != null) contents.put(contentId, content);
+        }
+        return contents;
+    }
+
+    private static void addContentId(Set<String> contentIds, String contentId) {
+        if (contentId != null) contentIds.add(contentId);
+    }
+
+    /**
+     * Caches a content, e.g., after it was saved, replacing a cached content with the same id.
+     * @param content Content to cache.
+     * @throws IOException Failed to determine the stored version of the content.
+     */
+    public void put(Content content) throws IOException {
+        put(content.getId(), content, loader.version(content.getId()));
+    }
+
+    private synchronized void put(String contentId, Content content, long version) {
+        long contentWeight = weigher.applyAsLong(content);
+        Entry previous = entries.remove(contentId);
+        if (previous != null) weight -= previous.weight;
+        if (contentWeight > maxWeight) return;
+        entries.put(contentId, new Entry(content, version, contentWeight));
+        weight += contentWeight;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (weight > maxWeight) {
+            weight -= iterator.next().weight;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Removes a content from the cache.
+     * @param contentId Content id.
+     */
+    public synchronized void invalidate(String contentId) {
+        Entry entry = entries.remove(contentId);
+        if (entry != null) weight -= entry.weight;
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the total weight of the cached contents.
+     * @return Weight.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Estimates the size of a content in characters of its JSON representation.
+     * @param content Content to weigh.
+     * @return Approximate size.
+     */
+    public static long estimateWeight(Content content) {
+        return estimateWeight(content.asJson());
+    }
+
+    private static long estimateWeight(JsonNode node) {
+        long nodeWeight = 4;
+        if (node.isTextual()) {
+            nodeWeight += node.asText().length();
+        } else if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                nodeWeight += field.getKey().length() + estimateWeight(field.getValue());
+            }
+        } else {
+            for (JsonNode child : node) {
+                nodeWeight += estimateWeight(child);
+            }
+        }
+        return nodeWeight;
+    }
+
+    /**
+     * Creates a loader reading contents from <code>&lt;contentId&gt;.json</code> files of a directory, versioned by their modification time.
+     * @param directory Directory holding the content files.
+     * @return Content loader.
+     */
+    public static ContentLoader fileLoader(Path directory) {
+        return new ContentLoader() {
+            @Override
+            public Content load(String contentId) throws IOException {
+                Path file = directory.resolve(contentId + ".json");
+                if (!Files.isRegularFile(file)) return null;
+                try {
+                    return GuideUtil.readContent(file.toFile());
+                } catch (IllegalArgumentException ex) {
+                    throw new IOException("Failed to read content " + contentId + ".", ex);
+                }
+            }
+
+            @Override
+            public long version(String contentId) throws IOException {
+                try {
+                    return Files.getLastModifiedTime(directory.resolve(contentId + ".json")).toMillis();
+                } catch (NoSuchFileException ex) {
+                    return -1;
+                }
+            }
+        };
+    }
+
+    /**
+     * Loads contents for a resolver.
+     */
+    public interface ContentLoader {
+
+        /**
+         * Loads a content.
+         * @param contentId Content id.
+         * @return Loaded content or <code>null</code> if the id is unknown.
+         * @throws IOException Failed to load the content.
+         */
+        public Content load(String contentId) throws IOException;
+
+        /**
+         * Returns the version of the stored content, e.g., its modification time or last update.
+         * A cached content is reloaded once the version changed. The default implementation returns a constant, so cached contents are never reloaded.
+         * @param contentId Content id.
+         * @return Version of the stored content.
+         * @throws IOException Failed to determine the version.
+         */
+        public default long version(String contentId) throws IOException {
+            return 0;
+        }
+    }
+
+    /**
+     * Cached content with the version it was loaded in.
+     */
+    private static final class Entry {
+        private final Content content;
+        private final long version;
+        private final long weight;
+        private volatile long validatedNanos;
+
+        private Entry(Content content, long version, long weight) {
+            this.content = content;
+            this.version = version;
+            this.weight = weight;
+            this.validatedNanos = System.nanoTime();
+        }
+    }
+}
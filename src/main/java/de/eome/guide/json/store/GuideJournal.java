@@ -0,0 +1,533 @@
+package de.eome.guide.json.store;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.eome.guide.json.ChangeEvent;
+import de.eome.guide.json.ChangeListener;
+import de.eome.guide.json.Guide;
+import de.eome.guide.json.Option;
+import de.eome.guide.json.Step;
+import de.eome.guide.json.UpdateListener;
+import de.eome.guide.json.UserRequest;
+import de.eome.guide.json.util.GuideCodec;
+import de.eome.guide.json.util.GuideUtil;
+import de.eome.guide.json.util.JsonUtil;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Append-only journal persisting the changes of a guide incrementally.
+ * Every update of the guide is appended as one line to the journal file <code>&lt;guideId&gt;.journal</code>, holding a sequence number,
+ * the last update time and the changes as JSON Patch, see {@link GuideUtil#apply(Guide, ArrayNode)}. Changes within a batch are written as one record.
+ * Once the journal exceeds the compaction threshold, a snapshot <code>&lt;guideId&gt;.snapshot-&lt;sequence&gt;.json</code> is written in the background
+ * and the journal is cut down to the records following it. Opening a journal reads the latest snapshot and replays the journal records after it,
+ * a record torn by a crash at the end of the journal is discarded.
+ * The guide must only be modified by one thread at a time, the journal writes on that thread.
+ */
+public class GuideJournal implements Closeable {
+    private static final JsonNodeFactory nodeFactory = JsonNodeFactory.instance;
+    private static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String SNAPSHOT_INFIX = ".snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".json";
+
+    private final Guide guide;
+    private final Path directory;
+    private final SyncPolicy syncPolicy;
+    private final int compactionThreshold;
+    private final Executor executor;
+    private final GuideCodec codec;
+    private final ChangeListener changeListener = this::recordChange;
+    private final UpdateListener updateListener = this::writeRecord;
+    private ArrayNode pendingOperations;
+    private FileChannel channel;
+    private long sequence;
+    private int recordsSinceSnapshot;
+    private int unsyncedRecords;
+    private long lastSyncNanos;
+    private boolean compactionRunning;
+    private IOException compactionFailure;
+    private boolean closed;
+
+    private GuideJournal(Guide guide, Path directory, SyncPolicy syncPolicy, int compactionThreshold, Executor executor, GuideCodec codec) {
+        if (compactionThreshold < 1) {
+            throw new IllegalArgumentException("The compaction threshold must be at least one record.");
+        }
+        this.guide = guide;
+        this.directory = directory;
+        this.syncPolicy = syncPolicy;
+        this.compactionThreshold = compactionThreshold;
+        this.executor = executor;
+        this.codec = codec;
+    }
+
+    /**
+     * Starts journaling a guide, writing its current state as initial snapshot and replacing any journal stored for its id.
+     * @param guide Guide to journal.
+     * @param directory Directory to store snapshot and journal in.
+     * @param syncPolicy Policy for forcing journal records to disk.
+     * @return Journal attached to the guide.
+     * @throws IOException Failed to write the snapshot or to create the journal.
+     */
+    public static GuideJournal create(Guide guide, Path directory, SyncPolicy syncPolicy) throws IOException {
+        return create(guide, directory, syncPolicy, DEFAULT_COMPACTION_THRESHOLD, ForkJoinPool.commonPool(), GuideCodec.getDefault());
+    }
+
+    /**
+     * Starts journaling a guide, see {@link #create(Guide, Path, SyncPolicy)}.
+     * @param guide Guide to journal.
+     * @param directory Directory to store snapshot and journal in.
+     * @param syncPolicy Policy for forcing journal records to disk.
+     * @param compactionThreshold Number of records after which a new snapshot is written.
+     * @param executor Executor to write snapshots with.
+     * @param codec Codec to serialize snapshots and records with.
+     * @return Journal attached to the guide.
+     * @throws IOException Failed to write the snapshot or to create the journal.
+     */
+    public static GuideJournal create(Guide guide, Path directory, SyncPolicy syncPolicy, int compactionThreshold, Executor executor, GuideCodec codec) throws IOException {
+        GuideJournal journal = new GuideJournal(guide, directory, syncPolicy, compactionThreshold, executor, codec);
+        Files.createDirectories(directory);
+        // Truncate the old journal before the new snapshot exists, so its records are never replayed on top of it.
+        journal.channel = FileChannel.open(journal.journalFile(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            journal.channel.force(true);
+            journal.writeSnapshot(codec.getWriter(false).writeValueAsBytes(guide.asJson()), 0);
+            journal.deleteSnapshotsExcept(0);
+        } catch (IOException | RuntimeException ex) {
+            journal.channel.close();
+            throw ex;
+        }
+        journal.attach();
+        return journal;
+    }
+
+    /**
+     * Loads a guide from its latest snapshot and journal and continues journaling it.
+     * @param directory Directory holding snapshot and journal.
+     * @param guideId Id of the guide to load.
+     * @param syncPolicy Policy for forcing journal records to disk.
+     * @return Journal attached to the loaded guide, see {@link #getGuide()}.
+     * @throws IOException Failed to read snapshot or journal, or no snapshot exists for the given id.
+     * @throws IllegalArgumentException Snapshot or journal records are invalid.
+     */
+    public static GuideJournal open(Path directory, String guideId, SyncPolicy syncPolicy) throws IOException, IllegalArgumentException {
+        return open(directory, guideId, syncPolicy, DEFAULT_COMPACTION_THRESHOLD, ForkJoinPool.commonPool(), GuideCodec.getDefault());
+    }
+
+    /**
+     * Loads a guide from its latest snapshot and journal, see {@link #open(Path, String, SyncPolicy)}.
+     * @param directory Directory holding snapshot and journal.
+     * @param guideId Id of the guide to load.
+     * @param syncPolicy Policy for forcing journal records to disk.
+     * @param compactionThreshold Number of records after which a new snapshot is written.
+     * @param executor Executor to write snapshots with.
+     * @param codec Codec to read and write snapshots and records with.
+     * @return Journal attached to the loaded guide.
+     * @throws IOException Failed to read snapshot or journal, or no snapshot exists for the given id.
+     * @throws IllegalArgumentException Snapshot or journal records are invalid.
+     */
+    public static GuideJournal open(Path directory, String guideId, SyncPolicy syncPolicy, int compactionThreshold, Executor executor, GuideCodec codec) throws IOException, IllegalArgumentException {
+        long snapshotSequence = latestSnapshot(directory, guideId);
+        if (snapshotSequence < 0) {
+            throw new IOException("No snapshot found for guide " + guideId + " in " + directory + ".");
+        }
+        Guide guide = GuideUtil.readGuide(directory.resolve(guideId + SNAPSHOT_INFIX + snapshotSequence + SNAPSHOT_SUFFIX).toFile(), codec);
+        GuideJournal journal = new GuideJournal(guide, directory, syncPolicy, compactionThreshold, executor, codec);
+        journal.sequence = snapshotSequence;
+        Path journalFile = journal.journalFile();
+        long validLength = Files.exists(journalFile) ? journal.replay(Files.readAllBytes(journalFile), snapshotSequence) : 0;
+        journal.channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        journal.channel.truncate(validLength);
+        journal.channel.position(validLength);
+        journal.attach();
+        return journal;
+    }
+
+    /**
+     * Applies the journal records following the snapshot to the guide.
+     * @return Length of the journal up to the end of the last complete record.
+     */
+    private long replay(byte[] data, long snapshotSequence) throws IOException {
+        int start = 0;
+        try {
+            for (int end = 0; end < data.length; end++) {
+                if (data[end] != '\n') continue;
+                JsonNode record = codec.getMapper().readTree(codec.getFactory().createParser(data, start, end - start));
+                long recordSequence = record.path("seq").asLong();
+                if (recordSequence > snapshotSequence) {
+                    OffsetDateTime lastUpdate = OffsetDateTime.parse(record.path("lastUpdate").asText());
+                    guide.setClock(Clock.fixed(lastUpdate.toInstant(), lastUpdate.getOffset()));
+                    GuideUtil.apply(guide, (ArrayNode) record.path("patch"));
+                    sequence = recordSequence;
+                    recordsSinceSnapshot++;
+                }
+                start = end + 1;
+            }
+        } catch (IOException | RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid journal record at byte " + start + " of guide " + guide.getId() + ".", ex);
+        } finally {
+            guide.setClock(Clock.systemDefaultZone());
+        }
+        return start;
+    }
+
+    private void attach() {
+        lastSyncNanos = System.nanoTime();
+        guide.addChangeListener(changeListener);
+        guide.addUpdateListener(updateListener);
+    }
+
+    /**
+     * Returns the journaled guide.
+     * @return Guide.
+     */
+    public Guide getGuide() {
+        return guide;
+    }
+
+    /**
+     * Returns the sequence number of the last record written to or replayed from the journal.
+     * @return Sequence number, <code>0</code> if no record was written since the journal was created.
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Translates a change into patch operations collected until the update is performed.
+     */
+    private void recordChange(ChangeEvent event) {
+        if (pendingOperations == null) {
+            pendingOperations = nodeFactory.arrayNode();
+        }
+        List<Object> path = event.getPath();
+        StringBuilder pointer = new StringBuilder();
+        if (path.size() > 1) {
+            Step step = (Step) path.get(1);
+            pointer.append("/steps/").append(indexOf(step));
+            if (path.size() > 2) {
+                Option option = (Option) path.get(2);
+                pointer.append("/userRequest/options/").append(indexOf(option));
+            }
+        }
+        Object source = event.getSource();
+        String property = event.getProperty();
+        switch (property) {
+            case "access":
+                addOperation("add", "/access", allAccessEntries());
+                return;
+            case "tags":
+                addOperation("add", "/tags", allTags());
+                return;
+            case "content":
+                if (source instanceof UserRequest) pointer.append("/userRequest");
+                pointer.append("/content/").append(escape(event.getKey()));
+                break;
+            case "steps":
+            case "options":
+                if (property.equals("options")) pointer.append("/userRequest");
+                pointer.append('/').append(property).append('/').append(event.getIndex());
+                break;
+            default:
+                pointer.append('/').append(escape(property));
+        }
+        if (event.getOperation() == ChangeEvent.Operation.REMOVE) {
+            addOperation("remove", pointer.toString(), null);
+        } else {
+            addOperation("add", pointer.toString(), toJson(event.getNewValue()));
+        }
+    }
+
+    private int indexOf(Step step) {
+        int index = guide.indexOfStep(step.getId());
+        return index >= 0 && guide.getSteps().get(index) == step ? index : guide.getSteps().indexOf(step);
+    }
+
+    private static int indexOf(Option option) {
+        return option.getParent().getOptions().indexOf(option);
+    }
+
+    private JsonNode allAccessEntries() {
+        ArrayNode entries = nodeFactory.arrayNode();
+        guide.getAllAccessEntries().forEach(entry -> entries.add(entry.toString()));
+        return entries;
+    }
+
+    private JsonNode allTags() {
+        ArrayNode tags = nodeFactory.arrayNode();
+        guide.getAllTags().forEach(tag -> tags.add(tag.toString()));
+        return tags;
+    }
+
+    private static JsonNode toJson(Object value) {
+        if (value instanceof Step) return ((Step) value).asJson().deepCopy();
+        if (value instanceof Option) return ((Option) value).asJson().deepCopy();
+        if (value instanceof JsonNode) return ((JsonNode) value).deepCopy();
+        return value != null ? nodeFactory.textNode(value.toString()) : nodeFactory.nullNode();
+    }
+
+    private void addOperation(String op, String path, JsonNode value) {
+        ObjectNode operation = pendingOperations.addObject();
+        operation.put("op", op);
+        operation.put("path", path);
+        if (value != null) operation.set("value", value);
+    }
+
+    private static String escape(String segment) {
+        return segment.replace("~", "~0").replace("/", "~1");
+    }
+
+    /**
+     * Appends the changes collected since the last update as one record.
+     */
+    private void writeRecord() {
+        if (pendingOperations == null) return;
+        ArrayNode operations = pendingOperations;
+        pendingOperations = null;
+        try {
+            append(operations);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to append to journal of guide " + guide.getId() + ".", ex);
+        }
+    }
+
+    private synchronized void append(ArrayNode operations) throws IOException {
+        if (closed) return;
+        ObjectNode record = nodeFactory.objectNode();
+        record.put("seq", sequence + 1);
+        record.put("lastUpdate", guide.getLastUpdate().toString());
+        record.set("patch", operations);
+        byte[] bytes = codec.getWriter(false).writeValueAsBytes(record);
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 1);
+        buffer.put(bytes).put((byte) '\n').flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        sequence++;
+        unsyncedRecords++;
+        recordsSinceSnapshot++;
+        if (syncPolicy.isDue(unsyncedRecords, System.nanoTime() - lastSyncNanos)) {
+            force();
+        }
+        if (recordsSinceSnapshot >= compactionThreshold && !compactionRunning) {
+            startCompaction();
+        }
+    }
+
+    /**
+     * Forces all records written so far to disk.
+     * A failure of a background compaction is only reported here and by {@link #close()}, never to the thread changing the guide.
+     * @throws IOException Failed to force the journal to disk, or a background compaction failed since the last call.
+     */
+    public synchronized void sync() throws IOException {
+        if (closed) return;
+        force();
+        if (compactionFailure != null) {
+            IOException failure = compactionFailure;
+            compactionFailure = null;
+            throw failure;
+        }
+    }
+
+    /**
+     * Forces the journal to disk, must be called while holding the lock.
+     */
+    private void force() throws IOException {
+        channel.force(false);
+        unsyncedRecords = 0;
+        lastSyncNanos = System.nanoTime();
+    }
+
+    /**
+     * Serializes the guide on the calling thread and writes the snapshot in the background.
+     */
+    private void startCompaction() throws IOException {
+        byte[] snapshot = codec.getWriter(false).writeValueAsBytes(guide.asJson());
+        long snapshotSequence = sequence;
+        long journalPosition = channel.position();
+        compactionRunning = true;
+        executor.execute(() -> compact(snapshot, snapshotSequence, journalPosition));
+    }
+
+    private void compact(byte[] snapshot, long snapshotSequence, long journalPosition) {
+        try {
+            writeSnapshot(snapshot, snapshotSequence);
+            synchronized (this) {
+                if (!closed) {
+                    cutJournal(journalPosition);
+                    recordsSinceSnapshot = (int) (sequence - snapshotSequence);
+                }
+            }
+            deleteSnapshotsExcept(snapshotSequence);
+        } catch (IOException ex) {
+            synchronized (this) {
+                compactionFailure = ex;
+            }
+        } finally {
+            synchronized (this) {
+                compactionRunning = false;
+            }
+        }
+    }
+
+    /**
+     * Replaces the journal by the records following the given position, must be called while holding the lock.
+     */
+    private void cutJournal(long position) throws IOException {
+        Path journalFile = journalFile();
+        Path tempFile = directory.resolve(guide.getId() + JOURNAL_SUFFIX + ".tmp");
+        try (FileChannel tempChannel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = channel.size();
+            try (FileChannel source = FileChannel.open(journalFile, StandardOpenOption.READ)) {
+                long transferred = 0;
+                while (position + transferred < size) {
+                    transferred += source.transferTo(position + transferred, size - position - transferred, tempChannel);
+                }
+            }
+            tempChannel.force(true);
+        }
+        channel.close();
+        move(tempFile, journalFile);
+        channel = FileChannel.open(journalFile, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        unsyncedRecords = 0;
+    }
+
+    private void writeSnapshot(byte[] snapshot, long snapshotSequence) throws IOException {
+        JsonUtil.writeAtomically(directory.resolve(guide.getId() + SNAPSHOT_INFIX + snapshotSequence + SNAPSHOT_SUFFIX), snapshot, true);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void deleteSnapshotsExcept(long snapshotSequence) throws IOException {
+        try (DirectoryStream<Path> files = snapshotFiles(directory, guide.getId())) {
+            for (Path file : files) {
+                long fileSequence = snapshotSequence(file, guide.getId());
+                if (fileSequence >= 0 && fileSequence != snapshotSequence) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private static long latestSnapshot(Path directory, String guideId) throws IOException {
+        long latest = -1;
+        if (!Files.isDirectory(directory)) return latest;
+        try (DirectoryStream<Path> files = snapshotFiles(directory, guideId)) {
+            for (Path file : files) {
+                latest = Math.max(latest, snapshotSequence(file, guideId));
+            }
+        }
+        return latest;
+    }
+
+    private static DirectoryStream<Path> snapshotFiles(Path directory, String guideId) throws IOException {
+        String prefix = guideId + SNAPSHOT_INFIX;
+        return Files.newDirectoryStream(directory, file -> {
+            String fileName = file.getFileName().toString();
+            return fileName.startsWith(prefix) && fileName.endsWith(SNAPSHOT_SUFFIX);
+        });
+    }
+
+    private static long snapshotSequence(Path file, String guideId) {
+        String fileName = file.getFileName().toString();
+        String sequence = fileName.substring((guideId + SNAPSHOT_INFIX).length(), fileName.length() - SNAPSHOT_SUFFIX.length());
+        try {
+            return Long.parseLong(sequence);
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private Path journalFile() {
+        return directory.resolve(guide.getId() + JOURNAL_SUFFIX);
+    }
+
+    /**
+     * Detaches the journal from the guide, forces pending records to disk and closes the journal file.
+     * A running compaction is completed in the background.
+     * @throws IOException Failed to force or close the journal.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        guide.removeChangeListener(changeListener);
+        guide.removeUpdateListener(updateListener);
+        try {
+            sync();
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    /**
+     * Policy deciding when journal records are forced to disk.
+     */
+    public static final class SyncPolicy {
+        private final int records;
+        private final long intervalNanos;
+
+        private SyncPolicy(int records, long intervalNanos) {
+            this.records = records;
+            this.intervalNanos = intervalNanos;
+        }
+
+        /**
+         * Forces every record to disk before the change returns.
+         * @return Sync policy.
+         */
+        public static SyncPolicy everyWrite() {
+            return new SyncPolicy(1, 0);
+        }
+
+        /**
+         * Forces the journal to disk after the given number of records, up to <code>records - 1</code> records may be lost on a crash.
+         * @param records Number of records per sync.
+         * @return Sync policy.
+         */
+        public static SyncPolicy batched(int records) {
+            if (records < 1) {
+                throw new IllegalArgumentException("At least one record per sync is required.");
+            }
+            return new SyncPolicy(records, 0);
+        }
+
+        /**
+         * Forces the journal to disk on the first record written after the given interval elapsed since the last sync.
+         * Records are not forced without further writes, call {@link GuideJournal#sync()} periodically to bound the loss.
+         * @param interval Minimum time between two syncs.
+         * @return Sync policy.
+         */
+        public static SyncPolicy interval(Duration interval) {
+            return new SyncPolicy(Integer.MAX_VALUE, interval.toNanos());
+        }
+
+        private boolean isDue(int unsyncedRecords, long nanosSinceSync) {
+            return unsyncedRecords >= records || (intervalNanos > 0 && nanosSinceSync >= intervalNanos);
+        }
+    }
+}
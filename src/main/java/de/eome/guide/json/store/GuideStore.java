@@ -0,0 +1,209 @@
+package de.eome.guide.json.store;
+
+import de.eome.guide.json.ChangeEvent;
+import de.eome.guide.json.ChangeListener;
+import de.eome.guide.json.Guide;
+import de.eome.guide.json.Option;
+import de.eome.guide.json.Step;
+import de.eome.guide.json.Tag;
+import de.eome.guide.json.UserRequest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory store holding guides by id with secondary indexes over tags, content ids and step types.
+ * The store registers itself as change listener of every guide it holds. A change of an indexed property only marks the guide as changed,
+ * its index entries are updated before the next query, other changes are ignored, so each query costs the size of its result plus the re-indexing of guides changed since the last query.
+ * All methods are synchronized, the guides themselves are not thread-safe.
+ */
+public class GuideStore {
+    private final Map<String, Entry> entries;
+    private final Map<Tag, Set<Guide>> tagIndex;
+    private final Map<String, Set<Guide>> contentIndex;
+    private final Map<String, Set<Guide>> stepTypeIndex;
+    private final Set<Entry> changedEntries;
+
+    public GuideStore() {
+        entries = new HashMap<>();
+        tagIndex = new HashMap<>();
+        contentIndex = new HashMap<>();
+        stepTypeIndex = new HashMap<>();
+        changedEntries = new LinkedHashSet<>();
+    }
+
+    /**
+     * Adds a guide to the store, replacing a stored guide with the same id.
+     * @param guide Guide to add.
+     */
+    public synchronized void put(Guide guide) {
+        remove(guide.getId());
+        Entry entry = new Entry(guide);
+        entries.put(guide.getId(), entry);
+        reindex(entry);
+        guide.addChangeListener(entry);
+    }
+
+    /**
+     * Removes a guide from the store.
+     * @param guideId Id of the guide to remove.
+     * @return Removed guide or <code>null</code> if no guide with the given id is stored.
+     */
+    public synchronized Guide remove(String guideId) {
+        Entry entry = entries.remove(guideId);
+        if (entry == null) return null;
+        entry.guide.removeChangeListener(entry);
+        changedEntries.remove(entry);
+        updateIndex(tagIndex, entry.guide, entry.tags, Collections.emptySet());
+        updateIndex(contentIndex, entry.guide, entry.contentIds, Collections.emptySet());
+        updateIndex(stepTypeIndex, entry.guide, entry.stepTypes, Collections.emptySet());
+        return entry.guide;
+    }
+
+    /**
+     * Returns the guide with the given id.
+     * @param guideId Guide id.
+     * @return Stored guide or <code>null</code>.
+     */
+    public synchronized Guide get(String guideId) {
+        Entry entry = entries.get(guideId);
+        return entry != null ? entry.guide : null;
+    }
+
+    /**
+     * Returns all stored guides.
+     * @return List of all guides in no particular order.
+     */
+    public synchronized List<Guide> getAll() {
+        List<Guide> guides = new ArrayList<>(entries.size());
+        entries.values().forEach(entry -> guides.add(entry.guide));
+        return guides;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns all guides having the given tag.
+     * @param tag Tag to search for.
+     * @return List of matching guides.
+     */
+    public synchronized List<Guide> findByTag(Tag tag) {
+        return find(tagIndex, tag);
+    }
+
+    public List<Guide> findByCustomTag(String value) {
+        return findByTag(new Tag(de.eome.guide.api.Tag.Type.CUSTOM, value));
+    }
+
+    public List<Guide> findByTypedTag(String value) {
+        return findByTag(new Tag(de.eome.guide.api.Tag.Type.TYPED, value));
+    }
+
+    /**
+     * Returns all guides referencing the given content id on guide level, in one of their steps or in an option of a user request.
+     * @param contentId Content id to search for.
+     * @return List of matching guides.
+     */
+    public synchronized List<Guide> findByContentId(String contentId) {
+        return find(contentIndex, contentId);
+    }
+
+    /**
+     * Returns all guides containing at least one step of the given type, e.g., "chapter".
+     * @param stepType Step type to search for.
+     * @return List of matching guides.
+     */
+    public synchronized List<Guide> findByStepType(String stepType) {
+        return find(stepTypeIndex, stepType);
+    }
+
+    private <K> List<Guide> find(Map<K, Set<Guide>> index, K key) {
+        flushChanges();
+        Set<Guide> guides = index.get(key);
+        return guides != null ? new ArrayList<>(guides) : Collections.emptyList();
+    }
+
+    private synchronized void markChanged(Entry entry) {
+        if (entries.get(entry.guide.getId()) == entry) {
+            changedEntries.add(entry);
+        }
+    }
+
+    private void flushChanges() {
+        if (changedEntries.isEmpty()) return;
+        changedEntries.forEach(this::reindex);
+        changedEntries.clear();
+    }
+
+    private void reindex(Entry entry) {
+        Guide guide = entry.guide;
+        Set<Tag> tags = new HashSet<>(guide.getAllTags());
+        Set<String> contentIds = new HashSet<>(guide.getContentIds().values());
+        Set<String> stepTypes = new HashSet<>();
+        for (Step step : guide.getSteps()) {
+            stepTypes.add(step.getType());
+            contentIds.addAll(step.getContentIds().values());
+            if (step instanceof UserRequest) {
+                for (Option option : ((UserRequest) step).getOptions()) {
+                    contentIds.addAll(option.getContentIds().values());
+                }
+            }
+        }
+        updateIndex(tagIndex, guide, entry.tags, tags);
+        updateIndex(contentIndex, guide, entry.contentIds, contentIds);
+        updateIndex(stepTypeIndex, guide, entry.stepTypes, stepTypes);
+        entry.tags = tags;
+        entry.contentIds = contentIds;
+        entry.stepTypes = stepTypes;
+    }
+
+    private static <K> void updateIndex(Map<K, Set<Guide>> index, Guide guide, Set<K> oldKeys, Set<K> newKeys) {
+        for (K key : oldKeys) {
+            if (!newKeys.contains(key)) {
+                Set<Guide> guides = index.get(key);
+                guides.remove(guide);
+                if (guides.isEmpty()) index.remove(key);
+            }
+        }
+        for (K key : newKeys) {
+            if (!oldKeys.contains(key)) {
+                index.computeIfAbsent(key, k -> new HashSet<>()).add(guide);
+            }
+        }
+    }
+
+    /**
+     * Stored guide together with the index keys it is currently registered under.
+     */
+    private final class Entry implements ChangeListener {
+        private final Guide guide;
+        private Set<Tag> tags = Collections.emptySet();
+        private Set<String> contentIds = Collections.emptySet();
+        private Set<String> stepTypes = Collections.emptySet();
+
+        private Entry(Guide guide) {
+            this.guide = guide;
+        }
+
+        @Override
+        public void changePerformed(ChangeEvent event) {
+            switch (event.getProperty()) {
+                case "tags":
+                case "content":
+                case "steps":
+                case "options":
+                    markChanged(this);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
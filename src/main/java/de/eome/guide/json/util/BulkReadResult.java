@@ -0,0 +1,53 @@
+package de.eome.guide.json.util;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Result of reading all files of a directory, see {@link GuideUtil#readGuides(Path, java.util.concurrent.Executor)}.
+ * Files which could not be read are reported as errors instead of aborting the whole operation.
+ * @param <T> Type of the read objects.
+ */
+public final class BulkReadResult<T> {
+    private final Map<Path, T> results;
+    private final Map<Path, Exception> errors;
+    private final int readCount;
+    
+    BulkReadResult(Map<Path, T> results, Map<Path, Exception> errors, int readCount) {
+        this.results = Collections.unmodifiableMap(results);
+        this.errors = Collections.unmodifiableMap(errors);
+        this.readCount = readCount;
+    }
+    
+    /**
+     * Returns the successfully read objects by file.
+     * Empty if the objects were passed to a consumer while reading.
+     * @return Read objects sorted by file path.
+     */
+    public Map<Path, T> getResults() {
+        return results;
+    }
+    
+    /**
+     * Returns the errors occurred while reading.
+     * Errors thrown by the reader or consumer, e.g., a {@link StackOverflowError} on deeply nested input, are wrapped in an
+     * {@link java.util.concurrent.ExecutionException}. Other virtual machine errors like {@link OutOfMemoryError} are not caught.
+     * @return Errors sorted by file path.
+     */
+    public Map<Path, Exception> getErrors() {
+        return errors;
+    }
+    
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+    
+    /**
+     * Returns the number of successfully read files.
+     * @return Number of read files.
+     */
+    public int getReadCount() {
+        return readCount;
+    }
+}
@@ -0,0 +1,64 @@
+package de.eome.guide.json.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Output stream writing to a channel through a caller-supplied buffer.
+ * The buffer is drained into the channel whenever it is full and on flush, the channel itself is never closed by this stream.
+ * The channel is expected to be in blocking mode.
+ */
+final class ChannelOutputStream extends OutputStream {
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    
+    ChannelOutputStream(WritableByteChannel channel, ByteBuffer buffer) {
+        if (buffer.capacity() == 0) {
+            throw new IllegalArgumentException("Buffer capacity must be greater than zero.");
+        }
+        this.channel = channel;
+        this.buffer = buffer;
+        buffer.clear();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int chunk = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        drain();
+    }
+    
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,13 @@
+package de.eome.guide.json.util;
+
+/**
+ * Encodings supported for guides and contents.
+ */
+public enum DataFormat {
+    /** Textual JSON. */
+    JSON,
+    /** Binary Smile encoding, with back-references for repeated field names and short string values. */
+    SMILE,
+    /** Binary CBOR encoding, prefixed with the self-describe tag. */
+    CBOR
+}
@@ -0,0 +1,163 @@
+package de.eome.guide.json.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.format.DataFormatDetector;
+import com.fasterxml.jackson.core.format.DataFormatMatcher;
+import com.fasterxml.jackson.core.format.MatchStrength;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reusable JSON codec holding pre-built readers and writers.
+ * A codec is immutable after construction and can be shared between threads, so the mapper setup and the buffer recycling of the underlying factory are paid only once.
+ * Parser and generator features can be configured on the factories passed to the constructor.
+ * Besides textual JSON, the codec handles the binary Smile and CBOR encodings, see {@link DataFormat}.
+ */
+public final class GuideCodec {
+    private static volatile GuideCodec defaultCodec = new GuideCodec();
+    
+    private final JsonFactory factory;
+    private final ObjectMapper mapper;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+    private final ObjectWriter prettyWriter;
+    private final ObjectMapper smileMapper;
+    private final ObjectMapper cborMapper;
+    private final DataFormatDetector detector;
+    
+    /**
+     * Creates a codec using a default JSON factory.
+     */
+    public GuideCodec() {
+        this(new JsonFactory());
+    }
+    
+    /**
+     * Creates a codec using the given JSON factory.
+     * The factory must not be reconfigured after it was passed to the codec.
+     * @param factory JSON factory to create parsers and generators with.
+     */
+    public GuideCodec(JsonFactory factory) {
+        this(factory, new SmileFactory().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES), new CBORFactory().enable(CBORGenerator.Feature.WRITE_TYPE_HEADER));
+    }
+    
+    /**
+     * Creates a codec using the given factories.
+     * The factories must not be reconfigured after they were passed to the codec.
+     * @param factory JSON factory to create parsers and generators with.
+     * @param smileFactory Factory for the Smile encoding.
+     * @param cborFactory Factory for the CBOR encoding.
+     */
+    public GuideCodec(JsonFactory factory, SmileFactory smileFactory, CBORFactory cborFactory) {
+        this.factory = factory;
+        this.mapper = new ObjectMapper(factory);
+        this.reader = mapper.readerFor(JsonNode.class);
+        this.writer = mapper.writer();
+        this.prettyWriter = mapper.writerWithDefaultPrettyPrinter();
+        this.smileMapper = new ObjectMapper(smileFactory);
+        this.cborMapper = new ObjectMapper(cborFactory);
+        this.detector = new DataFormatDetector(cborFactory, smileFactory).withMinimalMatch(MatchStrength.SOLID_MATCH);
+    }
+    
+    /**
+     * Returns the process-wide default codec.
+     * @return Default codec.
+     */
+    public static GuideCodec getDefault() {
+        return defaultCodec;
+    }
+    
+    /**
+     * Replaces the process-wide default codec used by all methods of {@link JsonUtil} and {@link GuideUtil} without codec argument.
+     * @param codec New default codec.
+     */
+    public static void setDefault(GuideCodec codec) {
+        if (codec == null) {
+            throw new IllegalArgumentException("Default codec may not be null.");
+        }
+        defaultCodec = codec;
+    }
+    
+    /**
+     * Returns the JSON factory used to create parsers and generators.
+     * @return JSON factory.
+     */
+    public JsonFactory getFactory() {
+        return factory;
+    }
+    
+    /**
+     * Returns the object mapper backing this codec, e.g., for value conversions.
+     * @return Object mapper.
+     */
+    public ObjectMapper getMapper() {
+        return mapper;
+    }
+    
+    /**
+     * Returns the shared reader for JSON trees.
+     * @return Reader for JSON nodes.
+     */
+    public ObjectReader getReader() {
+        return reader;
+    }
+    
+    /**
+     * Returns the shared writer for JSON trees.
+     * @param usePrettyPrint If set to <code>true</code>, the writer uses whitespaces and indentation, otherwise the output is compact.
+     * @return Writer for JSON nodes.
+     */
+    public ObjectWriter getWriter(boolean usePrettyPrint) {
+        return usePrettyPrint ? prettyWriter : writer;
+    }
+    
+    /**
+     * Returns the object mapper for the given encoding.
+     * @param format Encoding.
+     * @return Object mapper.
+     */
+    public ObjectMapper getMapper(DataFormat format) {
+        switch (format) {
+            case SMILE:
+                return smileMapper;
+            case CBOR:
+                return cborMapper;
+            default:
+                return mapper;
+        }
+    }
+    
+    /**
+     * Creates a parser for the given input, detecting whether it is encoded as JSON, Smile or CBOR.
+     * Only input starting with a Smile or CBOR header is parsed as binary, everything else is parsed by the JSON factory of this codec,
+     * so leading whitespace or comments allowed by the factory are accepted.
+     * @param in Stream to parse.
+     * @return Parser for the detected encoding.
+     * @throws IOException Failed to read from the stream.
+     */
+    public JsonParser createParser(InputStream in) throws IOException {
+        DataFormatMatcher match = detector.findFormat(in);
+        return match.hasMatch() ? match.createParserWithMatch() : factory.createParser(match.getDataStream());
+    }
+    
+    /**
+     * Creates a parser for the given input, detecting whether it is encoded as JSON, Smile or CBOR.
+     * Only input starting with a Smile or CBOR header is parsed as binary, everything else is parsed by the JSON factory of this codec.
+     * @param data Data to parse.
+     * @return Parser for the detected encoding.
+     * @throws IOException Failed to create the parser.
+     */
+    public JsonParser createParser(byte[] data) throws IOException {
+        DataFormatMatcher match = detector.findFormat(data);
+        return match.hasMatch() ? match.createParserWithMatch() : factory.createParser(data);
+    }
+}
@@ -0,0 +1,193 @@
+package de.eome.guide.json.util;
+
+import de.eome.guide.json.Guide;
+import de.eome.guide.json.StepGraph;
+
+/**
+ * Navigates through the steps of a guide for any number of concurrent sessions.
+ * The navigator works on the immutable {@link StepGraph} of the guide taken at creation, so sessions never access or lock the guide itself and
+ * resolving the next step is an array lookup. A session only holds its current and previous step position, it can be persisted as these two
+ * numbers and restored with {@link #resume(int, int)}.
+ * Changes of the guide made after the creation are not visible to the navigator, create a new one to pick them up.
+ */
+public class GuideNavigator {
+    private final String guideId;
+    private final StepGraph graph;
+
+    /**
+     * Creates a navigator for the current steps of a guide.
+     * The guide must not be modified by other threads during the call.
+     * @param guide Guide to navigate through.
+     */
+    public GuideNavigator(Guide guide) {
+        this(guide.getId(), guide.getStepGraph());
+    }
+
+    /**
+     * Creates a navigator for a compiled step graph.
+     * @param guideId Id of the guide the graph belongs to.
+     * @param graph Step graph to navigate through.
+     */
+    public GuideNavigator(String guideId, StepGraph graph) {
+        this.guideId = guideId;
+        this.graph = graph;
+    }
+
+    public String getGuideId() {
+        return guideId;
+    }
+
+    public StepGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Starts a new session at the first step.
+     * @return Session, already ended if the guide has no steps.
+     */
+    public Session start() {
+        return new Session(this, graph.size() > 0 ? 0 : -1, -1);
+    }
+
+    /**
+     * Restores a session from its persisted state.
+     * @param step Current step position or <code>-1</code> if the session ended.
+     * @param previousStep Previous step position or <code>-1</code> if there is none.
+     * @return Session.
+     * @throws IllegalArgumentException A position is out of range.
+     */
+    public Session resume(int step, int previousStep) throws IllegalArgumentException {
+        if (step < -1 || step >= graph.size() || previousStep < -1 || previousStep >= graph.size()) {
+            throw new IllegalArgumentException("Invalid session state " + step + ", " + previousStep + " for guide " + guideId + ".");
+        }
+        return new Session(this, step, previousStep);
+    }
+
+    /**
+     * Position of a single user within a guide. Sessions are not thread-safe, each one is meant to be used by one user at a time.
+     */
+    public static final class Session {
+        private final GuideNavigator navigator;
+        private int step;
+        private int previousStep;
+
+        private Session(GuideNavigator navigator, int step, int previousStep) {
+            this.navigator = navigator;
+            this.step = step;
+            this.previousStep = previousStep;
+        }
+
+        public GuideNavigator getNavigator() {
+            return navigator;
+        }
+
+        /**
+         * Returns the position of the current step.
+         * @return Step position or <code>-1</code> if the session ended.
+         */
+        public int getStep() {
+            return step;
+        }
+
+        /**
+         * Returns the position of the step the session came from.
+         * @return Step position or <code>-1</code> if the session is at its first step.
+         */
+        public int getPreviousStep() {
+            return previousStep;
+        }
+
+        /**
+         * Returns the id of the current step.
+         * @return Step id or <code>null</code> if the session ended.
+         */
+        public String getStepId() {
+            return step >= 0 ? navigator.graph.getStepId(step) : null;
+        }
+
+        /**
+         * Returns the type of the current step.
+         * @return Step type or <code>null</code> if the session ended.
+         */
+        public String getType() {
+            return step >= 0 ? navigator.graph.getType(step) : null;
+        }
+
+        /**
+         * Returns the guide a chapter at the current step refers to, a nested session for it has to be started by the caller.
+         * @return Target guide id or <code>null</code> if the current step is no chapter.
+         */
+        public String getTarget() {
+            return step >= 0 ? navigator.graph.getTarget(step) : null;
+        }
+
+        public boolean isEnded() {
+            return step < 0;
+        }
+
+        /**
+         * Checks whether the current step is a user request, which requires an option to be selected.
+         * @return <code>true</code> if the current step is a user request, otherwise <code>false</code>.
+         */
+        public boolean isUserRequest() {
+            return step >= 0 && "branch".equals(navigator.graph.getType(step));
+        }
+
+        /**
+         * Returns the number of options of the current step.
+         * @return Number of options, <code>0</code> if the current step is no user request.
+         */
+        public int getOptionCount() {
+            return step >= 0 ? navigator.graph.getOptionCount(step) : 0;
+        }
+
+        /**
+         * Continues with the step following the current one.
+         * @return Position of the new current step or <code>-1</code> if the session ended.
+         * @throws IllegalStateException The session ended or the current step is a user request.
+         */
+        public int next() throws IllegalStateException {
+            if (step < 0) {
+                throw new IllegalStateException("The session ended.");
+            }
+            if (isUserRequest()) {
+                throw new IllegalStateException("Step " + navigator.graph.getStepId(step) + " requires an option to be selected.");
+            }
+            return moveTo(navigator.graph.getNext(step));
+        }
+
+        /**
+         * Selects an option of the current user request and continues with the step following it.
+         * @param option Position of the selected option.
+         * @return Position of the new current step or <code>-1</code> if the session ended.
+         * @throws IllegalStateException The session ended or the current step is no user request.
+         * @throws IndexOutOfBoundsException The current step has no option at the given position.
+         */
+        public int select(int option) throws IllegalStateException {
+            if (!isUserRequest()) {
+                throw new IllegalStateException(step < 0 ? "The session ended." : "Step " + navigator.graph.getStepId(step) + " is no user request.");
+            }
+            return moveTo(navigator.graph.getOptionNext(step, option));
+        }
+
+        /**
+         * Returns to the previous step. Only one step can be undone.
+         * @return Position of the new current step.
+         * @throws IllegalStateException There is no previous step.
+         */
+        public int back() throws IllegalStateException {
+            if (previousStep < 0) {
+                throw new IllegalStateException("There is no previous step.");
+            }
+            step = previousStep;
+            previousStep = -1;
+            return step;
+        }
+
+        private int moveTo(int nextStep) {
+            previousStep = step;
+            step = nextStep;
+            return step;
+        }
+    }
+}
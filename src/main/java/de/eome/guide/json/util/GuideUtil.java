@@ -1,17 +1,51 @@
 package de.eome.guide.json.util;
 
-import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.eome.guide.json.Content;
 import de.eome.guide.json.Guide;
+import de.eome.guide.json.GuidePatch;
+import de.eome.guide.json.GuideReader;
+import de.eome.guide.json.GuideValidator;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Utility class for handling guides.
+ * All methods without codec argument use the process-wide default codec, see {@link GuideCodec#getDefault()}.
  */
 public final class GuideUtil {
-    private static final JsonFactory factory = new JsonFactory();
     
     /**
      * Reads a guide from a JSON string.
@@ -20,19 +54,247 @@ public final class GuideUtil {
      * @throws IllegalArgumentException The given string is either no valid JSON object or does not encode a guide.
      */
     public static Guide readGuide(String jsonString) throws IllegalArgumentException {
-        ObjectNode objectNode = JsonUtil.readJson(jsonString);
-        return new Guide(objectNode);
+        return readGuide(jsonString, GuideCodec.getDefault());
     }
     
     /**
-     * Reads a guide from a JSON file.
+     * Reads a guide from a JSON string.
+     * @param jsonString JSON string representing a guide.
+     * @param codec Codec to parse the JSON string with.
+     * @return Guide represented by the JSON object.
+     * @throws IllegalArgumentException The given string is either no valid JSON object or does not encode a guide.
+     */
+    public static Guide readGuide(String jsonString, GuideCodec codec) throws IllegalArgumentException {
+        try (JsonParser parser = codec.getFactory().createParser(jsonString)) {
+            return GuideReader.readGuide(parser, codec);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Not a valid JSON object.", ex);
+        }
+    }
+    
+    /**
+     * Reads a guide from a file encoded as JSON, Smile or CBOR, the encoding is detected automatically.
      * @param file JSON file.
      * @return Guide represented by the JSON file.
      * @throws IllegalArgumentException Failed to read file or no valid JSON object.
      */
     public static Guide readGuide(File file) throws IllegalArgumentException {
-        ObjectNode objectNode = JsonUtil.readJson(file);
-        return new Guide(objectNode);
+        return readGuide(file, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Reads a guide from a file encoded as JSON, Smile or CBOR, the encoding is detected automatically.
+     * @param file JSON file.
+     * @param codec Codec to parse the file with.
+     * @return Guide represented by the JSON file.
+     * @throws IllegalArgumentException Failed to read file or no valid JSON object.
+     */
+    public static Guide readGuide(File file, GuideCodec codec) throws IllegalArgumentException {
+        try (InputStream in = new FileInputStream(file); JsonParser parser = codec.createParser(in)) {
+            return GuideReader.readGuide(parser, codec);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("File not readable or no a valid JSON object.", ex);
+        }
+    }
+    
+    /**
+     * Decodes a guide encoded as JSON, Smile or CBOR, the encoding is detected automatically.
+     * @param data Encoded guide.
+     * @return Decoded guide.
+     * @throws IllegalArgumentException Unknown encoding or the data does not encode a guide.
+     */
+    public static Guide decodeGuide(byte[] data) throws IllegalArgumentException {
+        return decodeGuide(data, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Decodes a guide encoded as JSON, Smile or CBOR, the encoding is detected automatically.
+     * @param data Encoded guide.
+     * @param codec Codec to decode the guide with.
+     * @return Decoded guide.
+     * @throws IllegalArgumentException Unknown encoding or the data does not encode a guide.
+     */
+    public static Guide decodeGuide(byte[] data, GuideCodec codec) throws IllegalArgumentException {
+        try (JsonParser parser = codec.createParser(data)) {
+            return GuideReader.readGuide(parser, codec);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Not a valid JSON object.", ex);
+        }
+    }
+    
+    /**
+     * Decodes a guide encoded as JSON, Smile or CBOR from a stream, the encoding is detected automatically.
+     * The stream is not closed.
+     * @param in Stream to read the guide from.
+     * @return Decoded guide.
+     * @throws IllegalArgumentException Failed to read from the stream, unknown encoding or the data does not encode a guide.
+     */
+    public static Guide decodeGuide(InputStream in) throws IllegalArgumentException {
+        return decodeGuide(in, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Decodes a guide encoded as JSON, Smile or CBOR from a stream, the encoding is detected automatically.
+     * The stream is not closed.
+     * @param in Stream to read the guide from.
+     * @param codec Codec to decode the guide with.
+     * @return Decoded guide.
+     * @throws IllegalArgumentException Failed to read from the stream, unknown encoding or the data does not encode a guide.
+     */
+    public static Guide decodeGuide(InputStream in, GuideCodec codec) throws IllegalArgumentException {
+        try (JsonParser parser = codec.createParser(in)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            return GuideReader.readGuide(parser, codec);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Stream not readable or no a valid JSON object.", ex);
+        }
+    }
+    
+    /**
+     * Reads a guide known to be valid from a JSON, Smile or CBOR file without validating it, see {@link GuideReader#readTrustedGuide(JsonParser, GuideCodec)}.
+     * @param file File written by this library.
+     * @return Guide read from the file.
+     * @throws IllegalArgumentException Failed to read the file or no valid JSON object.
+     */
+    public static Guide readTrustedGuide(File file) throws IllegalArgumentException {
+        return readTrustedGuide(file, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Reads a guide known to be valid from a JSON, Smile or CBOR file without validating it, see {@link GuideReader#readTrustedGuide(JsonParser, GuideCodec)}.
+     * @param file File written by this library.
+     * @param codec Codec to parse the file with.
+     * @return Guide read from the file.
+     * @throws IllegalArgumentException Failed to read the file or no valid JSON object.
+     */
+    public static Guide readTrustedGuide(File file, GuideCodec codec) throws IllegalArgumentException {
+        try (InputStream in = new FileInputStream(file); JsonParser parser = codec.createParser(in)) {
+            return GuideReader.readTrustedGuide(parser, codec);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("File not readable or no a valid JSON object.", ex);
+        }
+    }
+    
+    /**
+     * Decodes a guide known to be valid without validating it, see {@link GuideReader#readTrustedGuide(JsonParser, GuideCodec)}.
+     * @param data Guide encoded by this library.
+     * @return Decoded guide.
+     * @throws IllegalArgumentException Unknown encoding or no valid JSON object.
+     */
+    public static Guide decodeTrustedGuide(byte[] data) throws IllegalArgumentException {
+        return decodeTrustedGuide(data, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Decodes a guide known to be valid without validating it, see {@link GuideReader#readTrustedGuide(JsonParser, GuideCodec)}.
+     * @param data Guide encoded by this library.
+     * @param codec Codec to decode the guide with.
+     * @return Decoded guide.
+     * @throws IllegalArgumentException Unknown encoding or no valid JSON object.
+     */
+    public static Guide decodeTrustedGuide(byte[] data, GuideCodec codec) throws IllegalArgumentException {
+        try (JsonParser parser = codec.createParser(data)) {
+            return GuideReader.readTrustedGuide(parser, codec);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Not a valid JSON object.", ex);
+        }
+    }
+    
+    /**
+     * Validates a guide file without building the model and reports all violations, see {@link GuideValidator#validateGuide(JsonParser)}.
+     * @param file JSON, Smile or CBOR file to validate.
+     * @return All violations, empty if the file encodes a valid guide.
+     * @throws IOException Failed to read the file.
+     */
+    public static List<GuideValidator.Violation> validateGuide(File file) throws IOException {
+        return validateGuide(file, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Validates a guide file without building the model and reports all violations, see {@link GuideValidator#validateGuide(JsonParser)}.
+     * @param file JSON, Smile or CBOR file to validate.
+     * @param codec Codec to parse the file with.
+     * @return All violations, empty if the file encodes a valid guide.
+     * @throws IOException Failed to read the file.
+     */
+    public static List<GuideValidator.Violation> validateGuide(File file, GuideCodec codec) throws IOException {
+        try (InputStream in = new FileInputStream(file); JsonParser parser = codec.createParser(in)) {
+            return GuideValidator.validateGuide(parser);
+        }
+    }
+    
+    /**
+     * Validates a guide encoded as JSON, Smile or CBOR without building the model and reports all violations.
+     * The stream is not closed.
+     * @param in Stream to read the guide from.
+     * @return All violations, empty if the stream encodes a valid guide.
+     * @throws IOException Failed to read from the stream.
+     */
+    public static List<GuideValidator.Violation> validateGuide(InputStream in) throws IOException {
+        return validateGuide(in, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Validates a guide encoded as JSON, Smile or CBOR without building the model and reports all violations.
+     * The stream is not closed.
+     * @param in Stream to read the guide from.
+     * @param codec Codec to decode the guide with.
+     * @return All violations, empty if the stream encodes a valid guide.
+     * @throws IOException Failed to read from the stream.
+     */
+    public static List<GuideValidator.Violation> validateGuide(InputStream in, GuideCodec codec) throws IOException {
+        try (JsonParser parser = codec.createParser(in)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            return GuideValidator.validateGuide(parser);
+        }
+    }
+    
+    /**
+     * Encodes a guide in the given format, JSON is written compact.
+     * @param guide Guide to encode.
+     * @param format Encoding to use.
+     * @return Encoded guide.
+     * @throws IOException Failed to encode the guide.
+     */
+    public static byte[] encodeGuide(Guide guide, DataFormat format) throws IOException {
+        return encodeGuide(guide, format, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Encodes a guide in the given format, JSON is written compact.
+     * @param guide Guide to encode.
+     * @param format Encoding to use.
+     * @param codec Codec to encode the guide with.
+     * @return Encoded guide.
+     * @throws IOException Failed to encode the guide.
+     */
+    public static byte[] encodeGuide(Guide guide, DataFormat format, GuideCodec codec) throws IOException {
+        return JsonUtil.encodeJson(guide.asJson(), format, codec);
+    }
+    
+    /**
+     * Writes a guide in the given format to an output stream, JSON is written compact.
+     * The stream is not closed.
+     * @param guide Guide to encode.
+     * @param format Encoding to use.
+     * @param out Stream to write the guide in.
+     * @throws IOException Failed to write to the given stream.
+     */
+    public static void encodeGuide(Guide guide, DataFormat format, OutputStream out) throws IOException {
+        encodeGuide(guide, format, out, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Writes a guide in the given format to an output stream, JSON is written compact.
+     * The stream is not closed.
+     * @param guide Guide to encode.
+     * @param format Encoding to use.
+     * @param out Stream to write the guide in.
+     * @param codec Codec to encode the guide with.
+     * @throws IOException Failed to write to the given stream.
+     */
+    public static void encodeGuide(Guide guide, DataFormat format, OutputStream out, GuideCodec codec) throws IOException {
+        JsonUtil.encodeJson(guide.asJson(), format, out, codec);
     }
     
     /**
@@ -43,7 +305,64 @@ public final class GuideUtil {
      * @throws IOException Failed to serialize guide.
      */
     public static String exportGuide(Guide guide, boolean usePrettyPrint) throws IOException {
-        return JsonUtil.exportJson(guide.asJson(), usePrettyPrint);
+        return exportGuide(guide, usePrettyPrint, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Exports a guide as JSON string.
+     * @param guide Guide to serialize as JSON.
+     * @param usePrettyPrint If set to <code>true</code>, whitepaces and identation is used.
+     * @param codec Codec to serialize the guide with.
+     * @return JSON string encoding the guide.
+     * @throws IOException Failed to serialize guide.
+     */
+    public static String exportGuide(Guide guide, boolean usePrettyPrint, GuideCodec codec) throws IOException {
+        return JsonUtil.exportJson(guide.asJson(), usePrettyPrint, codec);
+    }
+    
+    /**
+     * Exports a guide as canonical JSON string.
+     * Object fields are sorted by name and no whitespace is used, so equal guides result in identical strings which can be hashed or compared.
+     * @param guide Guide to serialize as JSON.
+     * @return Canonical JSON string encoding the guide.
+     * @throws IOException Failed to serialize guide.
+     */
+    public static String exportGuideCanonical(Guide guide) throws IOException {
+        return exportGuideCanonical(guide, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Exports a guide as canonical JSON string, see {@link #exportGuideCanonical(Guide)}.
+     * @param guide Guide to serialize as JSON.
+     * @param codec Codec to serialize the guide with.
+     * @return Canonical JSON string encoding the guide.
+     * @throws IOException Failed to serialize guide.
+     */
+    public static String exportGuideCanonical(Guide guide, GuideCodec codec) throws IOException {
+        return JsonUtil.exportCanonicalJson(guide.asJson(), codec);
+    }
+    
+    /**
+     * Writes a guide as canonical UTF-8 encoded JSON to an output stream, see {@link #exportGuideCanonical(Guide)}.
+     * The stream is not closed.
+     * @param guide Guide to write.
+     * @param out Stream to write the JSON in.
+     * @throws IOException Failed to write to the given stream.
+     */
+    public static void writeGuideCanonical(Guide guide, OutputStream out) throws IOException {
+        writeGuideCanonical(guide, out, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Writes a guide as canonical UTF-8 encoded JSON to an output stream, see {@link #exportGuideCanonical(Guide)}.
+     * The stream is not closed.
+     * @param guide Guide to write.
+     * @param out Stream to write the JSON in.
+     * @param codec Codec to serialize the guide with.
+     * @throws IOException Failed to write to the given stream.
+     */
+    public static void writeGuideCanonical(Guide guide, OutputStream out, GuideCodec codec) throws IOException {
+        JsonUtil.writeCanonicalJson(guide.asJson(), out, codec);
     }
     
     /**
@@ -54,24 +373,486 @@ public final class GuideUtil {
      * @throws IOException Failed to write the given file.
      */
     public static void writeGruide(Guide guide, File file, boolean usePrettyPrint) throws IOException {
-        JsonUtil.writeJson(guide.asJson(), file, usePrettyPrint);
+        writeGruide(guide, file, usePrettyPrint, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Writes a guide as JSON string directly in a file.
+     * @param guide Guide to write.
+     * @param usePrettyPrint If set to <code>true</code>, whitepaces and identation is used.
+     * @param file File to write the JSON string in.
+     * @param codec Codec to serialize the guide with.
+     * @throws IOException Failed to write the given file.
+     */
+    public static void writeGruide(Guide guide, File file, boolean usePrettyPrint, GuideCodec codec) throws IOException {
+        JsonUtil.writeJson(guide.asJson(), file, usePrettyPrint, codec);
+    }
+    
+    /**
+     * Writes a guide as UTF-8 encoded JSON to an output stream.
+     * The output is flushed to the stream incrementally while serializing, the stream is not closed.
+     * @param guide Guide to write.
+     * @param out Stream to write the JSON in.
+     * @param usePrettyPrint If set to <code>true</code>, whitepaces and identation is used.
+     * @throws IOException Failed to write to the given stream.
+     */
+    public static void writeGuide(Guide guide, OutputStream out, boolean usePrettyPrint) throws IOException {
+        writeGuide(guide, out, usePrettyPrint, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Writes a guide as UTF-8 encoded JSON to an output stream.
+     * The output is flushed to the stream incrementally while serializing, the stream is not closed.
+     * @param guide Guide to write.
+     * @param out Stream to write the JSON in.
+     * @param usePrettyPrint If set to <code>true</code>, whitepaces and identation is used.
+     * @param codec Codec to serialize the guide with.
+     * @throws IOException Failed to write to the given stream.
+     */
+    public static void writeGuide(Guide guide, OutputStream out, boolean usePrettyPrint, GuideCodec codec) throws IOException {
+        JsonUtil.writeJson(guide.asJson(), out, usePrettyPrint, codec);
+    }
+    
+    /**
+     * Writes a guide as UTF-8 encoded JSON to a channel.
+     * The channel must be in blocking mode and is not closed.
+     * @param guide Guide to write.
+     * @param channel Channel to write the JSON in.
+     * @param usePrettyPrint If set to <code>true</code>, whitepaces and identation is used.
+     * @throws IOException Failed to write to the given channel.
+     */
+    public static void writeGuide(Guide guide, WritableByteChannel channel, boolean usePrettyPrint) throws IOException {
+        writeGuide(guide, channel, usePrettyPrint, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Writes a guide as UTF-8 encoded JSON to a channel.
+     * The channel must be in blocking mode and is not closed.
+     * @param guide Guide to write.
+     * @param channel Channel to write the JSON in.
+     * @param usePrettyPrint If set to <code>true</code>, whitepaces and identation is used.
+     * @param codec Codec to serialize the guide with.
+     * @throws IOException Failed to write to the given channel.
+     */
+    public static void writeGuide(Guide guide, WritableByteChannel channel, boolean usePrettyPrint, GuideCodec codec) throws IOException {
+        JsonUtil.writeJson(guide.asJson(), Channels.newOutputStream(channel), usePrettyPrint, codec);
+    }
+    
+    /**
+     * Writes a guide as UTF-8 encoded JSON to a channel using the given buffer.
+     * The buffer is drained into the channel whenever it is full, so it can be reused, e.g., as direct buffer, over many calls.
+     * Its content is overwritten. The channel must be in blocking mode and is not closed.
+     * @param guide Guide to write.
+     * @param channel Channel to write the JSON in.
+     * @param buffer Buffer to stage the output in.
+     * @param usePrettyPrint If set to <code>true</code>, whitepaces and identation is used.
+     * @throws IOException Failed to write to the given channel.
+     */
+    public static void writeGuide(Guide guide, WritableByteChannel channel, ByteBuffer buffer, boolean usePrettyPrint) throws IOException {
+        writeGuide(guide, channel, buffer, usePrettyPrint, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Writes a guide as UTF-8 encoded JSON to a channel using the given buffer.
+     * The buffer is drained into the channel whenever it is full, so it can be reused, e.g., as direct buffer, over many calls.
+     * Its content is overwritten. The channel must be in blocking mode and is not closed.
+     * @param guide Guide to write.
+     * @param channel Channel to write the JSON in.
+     * @param buffer Buffer to stage the output in.
+     * @param usePrettyPrint If set to <code>true</code>, whitepaces and identation is used.
+     * @param codec Codec to serialize the guide with.
+     * @throws IOException Failed to write to the given channel.
+     */
+    public static void writeGuide(Guide guide, WritableByteChannel channel, ByteBuffer buffer, boolean usePrettyPrint, GuideCodec codec) throws IOException {
+        JsonUtil.writeJson(guide.asJson(), channel, buffer, usePrettyPrint, codec);
+    }
+    
+    /**
+     * Reads all guide files (<code>*.json</code>) of a directory in parallel.
+     * Files are read and parsed by the given executor, files which cannot be read are reported in the result.
+     * @param directory Directory to read.
+     * @param executor Executor to read the files with.
+     * @return Read guides and errors.
+     * @throws IOException Failed to list the directory or interrupted while waiting for the executor.
+     */
+    public static BulkReadResult<Guide> readGuides(Path directory, Executor executor) throws IOException {
+        return readAll(directory, executor, defaultMaxInFlight(), file -> readGuide(file), null);
+    }
+    
+    /**
+     * Reads all guide files (<code>*.json</code>) of a directory in parallel and passes each guide to a consumer instead of collecting them.
+     * At most <code>maxInFlight</code> files are read at the same time, listing the directory blocks until a reader is free again,
+     * so memory usage is bounded independent of the number of files.
+     * @param directory Directory to read.
+     * @param executor Executor to read the files with.
+     * @param maxInFlight Maximal number of files read at the same time.
+     * @param consumer Consumer of the read guides, called from the executor threads.
+     * @return Errors and number of read guides.
+     * @throws IOException Failed to list the directory or interrupted while waiting for the executor.
+     */
+    public static BulkReadResult<Guide> readGuides(Path directory, Executor executor, int maxInFlight, Consumer<? super Guide> consumer) throws IOException {
+        return readAll(directory, executor, maxInFlight, file -> readGuide(file), consumer);
+    }
+    
+    /**
+     * Lazily reads guides from an input stream containing either newline-delimited JSON objects or a single JSON array of guides.
+     * Guides are parsed one by one while the returned stream is consumed, so memory usage does not depend on the input size.
+     * Read failures are thrown as {@link UncheckedIOException}, invalid guides as {@link IllegalArgumentException}.
+     * Closing the returned stream closes the input stream.
+     * @param in Stream to read the guides from.
+     * @return Sequential stream of the read guides.
+     * @throws IOException Failed to read the start of the input.
+     */
+    public static Stream<Guide> streamGuides(InputStream in) throws IOException {
+        return streamGuides(in, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Lazily reads guides from an input stream, see {@link #streamGuides(InputStream)}.
+     * @param in Stream to read the guides from.
+     * @param codec Codec to parse the input with.
+     * @return Sequential stream of the read guides.
+     * @throws IOException Failed to read the start of the input.
+     */
+    public static Stream<Guide> streamGuides(InputStream in, GuideCodec codec) throws IOException {
+        JsonParser parser = codec.getFactory().createParser(in);
+        GuideIterator iterator;
+        try {
+            iterator = new GuideIterator(parser, codec);
+        } catch (IOException | RuntimeException ex) {
+            parser.close();
+            throw ex;
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(iterator::close);
+    }
+    
+    /**
+     * Writes guides as newline-delimited compact JSON to an output stream.
+     * If the given stream is parallel, the guides are serialized in parallel, the output keeps the encounter order of the stream.
+     * The output stream is not closed.
+     * @param guides Guides to write, must not be modified while writing.
+     * @param out Stream to write the guides in.
+     * @throws IOException Failed to write to the given stream.
+     */
+    public static void writeGuides(Stream<Guide> guides, OutputStream out) throws IOException {
+        writeGuides(guides, out, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Writes guides as newline-delimited compact JSON to an output stream, see {@link #writeGuides(Stream, OutputStream)}.
+     * @param guides Guides to write, must not be modified while writing.
+     * @param out Stream to write the guides in.
+     * @param codec Codec to serialize the guides with.
+     * @throws IOException Failed to write to the given stream.
+     */
+    public static void writeGuides(Stream<Guide> guides, OutputStream out, GuideCodec codec) throws IOException {
+        ObjectWriter writer = codec.getWriter(false);
+        try {
+            guides.map(guide -> {
+                try {
+                    return writer.writeValueAsBytes(guide.asJson());
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }).forEachOrdered(bytes -> {
+                try {
+                    out.write(bytes);
+                    out.write('\n');
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        out.flush();
+    }
+    
+    /**
+     * Computes a JSON Patch (RFC 6902) transforming one guide version into another, see {@link GuidePatch#diff(Guide, Guide)}.
+     * Steps are matched by id, so inserted, removed or reordered steps result in small patches.
+     * @param source Guide version to patch.
+     * @param target Guide version to reach by the patch.
+     * @return JSON Patch as array of operations.
+     */
+    public static ArrayNode diff(Guide source, Guide target) {
+        return GuidePatch.diff(source, target);
+    }
+    
+    /**
+     * Applies a JSON Patch (RFC 6902) to a guide, see {@link GuidePatch#apply(Guide, ArrayNode)}.
+     * @param guide Guide to patch.
+     * @param patch JSON Patch as array of operations.
+     * @throws IllegalArgumentException The patch cannot be applied to the guide.
+     */
+    public static void apply(Guide guide, ArrayNode patch) throws IllegalArgumentException {
+        GuidePatch.apply(guide, patch);
     }
     
     public static Content readContent(String contentString) throws IllegalArgumentException {
-        ObjectNode object = JsonUtil.readJson(contentString);
+        return readContent(contentString, GuideCodec.getDefault());
+    }
+    
+    public static Content readContent(String contentString, GuideCodec codec) throws IllegalArgumentException {
+        ObjectNode object = JsonUtil.readJson(contentString, codec);
         return new Content(object);
     }
     
     public static Content readContent(File file) throws IllegalArgumentException {
-        ObjectNode object = JsonUtil.readJson(file);
+        return readContent(file, GuideCodec.getDefault());
+    }
+    
+    public static Content readContent(File file, GuideCodec codec) throws IllegalArgumentException {
+        ObjectNode object = JsonUtil.readJson(file, codec);
         return new Content(object);
     }
     
+    /**
+     * Validates a content file without building the model and reports all violations, see {@link GuideValidator#validateContent(JsonParser)}.
+     * @param file JSON, Smile or CBOR file to validate.
+     * @return All violations, empty if the file encodes a valid content.
+     * @throws IOException Failed to read the file.
+     */
+    public static List<GuideValidator.Violation> validateContent(File file) throws IOException {
+        return validateContent(file, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Validates a content file without building the model and reports all violations, see {@link GuideValidator#validateContent(JsonParser)}.
+     * @param file JSON, Smile or CBOR file to validate.
+     * @param codec Codec to parse the file with.
+     * @return All violations, empty if the file encodes a valid content.
+     * @throws IOException Failed to read the file.
+     */
+    public static List<GuideValidator.Violation> validateContent(File file, GuideCodec codec) throws IOException {
+        try (InputStream in = new FileInputStream(file); JsonParser parser = codec.createParser(in)) {
+            return GuideValidator.validateContent(parser);
+        }
+    }
+    
+    /**
+     * Reads all content files (<code>*.json</code>) of a directory in parallel, see {@link #readGuides(Path, Executor)}.
+     * @param directory Directory to read.
+     * @param executor Executor to read the files with.
+     * @return Read contents and errors.
+     * @throws IOException Failed to list the directory or interrupted while waiting for the executor.
+     */
+    public static BulkReadResult<Content> readContents(Path directory, Executor executor) throws IOException {
+        return readAll(directory, executor, defaultMaxInFlight(), file -> readContent(file), null);
+    }
+    
+    /**
+     * Reads all content files (<code>*.json</code>) of a directory in parallel with bounded memory, see {@link #readGuides(Path, Executor, int, Consumer)}.
+     * @param directory Directory to read.
+     * @param executor Executor to read the files with.
+     * @param maxInFlight Maximal number of files read at the same time.
+     * @param consumer Consumer of the read contents, called from the executor threads.
+     * @return Errors and number of read contents.
+     * @throws IOException Failed to list the directory or interrupted while waiting for the executor.
+     */
+    public static BulkReadResult<Content> readContents(Path directory, Executor executor, int maxInFlight, Consumer<? super Content> consumer) throws IOException {
+        return readAll(directory, executor, maxInFlight, file -> readContent(file), consumer);
+    }
+    
+    public static Content decodeContent(byte[] data) throws IllegalArgumentException {
+        return decodeContent(data, GuideCodec.getDefault());
+    }
+    
+    public static Content decodeContent(byte[] data, GuideCodec codec) throws IllegalArgumentException {
+        return new Content(JsonUtil.decodeJson(data, codec));
+    }
+    
+    public static Content decodeContent(InputStream in) throws IllegalArgumentException {
+        return decodeContent(in, GuideCodec.getDefault());
+    }
+    
+    public static Content decodeContent(InputStream in, GuideCodec codec) throws IllegalArgumentException {
+        return new Content(JsonUtil.decodeJson(in, codec));
+    }
+    
+    public static byte[] encodeContent(Content content, DataFormat format) throws IOException {
+        return encodeContent(content, format, GuideCodec.getDefault());
+    }
+    
+    public static byte[] encodeContent(Content content, DataFormat format, GuideCodec codec) throws IOException {
+        return JsonUtil.encodeJson(content.asJson(), format, codec);
+    }
+    
+    public static void encodeContent(Content content, DataFormat format, OutputStream out) throws IOException {
+        encodeContent(content, format, out, GuideCodec.getDefault());
+    }
+    
+    public static void encodeContent(Content content, DataFormat format, OutputStream out, GuideCodec codec) throws IOException {
+        JsonUtil.encodeJson(content.asJson(), format, out, codec);
+    }
+    
     public static String exportContent(Content content, boolean usePrettyPrint) throws IOException {
-       return JsonUtil.exportJson(content.asJson(), usePrettyPrint);
+       return exportContent(content, usePrettyPrint, GuideCodec.getDefault());
+    }
+    
+    public static String exportContent(Content content, boolean usePrettyPrint, GuideCodec codec) throws IOException {
+       return JsonUtil.exportJson(content.asJson(), usePrettyPrint, codec);
+    }
+    
+    public static String exportContentCanonical(Content content) throws IOException {
+        return exportContentCanonical(content, GuideCodec.getDefault());
+    }
+    
+    public static String exportContentCanonical(Content content, GuideCodec codec) throws IOException {
+        return JsonUtil.exportCanonicalJson(content.asJson(), codec);
+    }
+    
+    public static void writeContentCanonical(Content content, OutputStream out) throws IOException {
+        writeContentCanonical(content, out, GuideCodec.getDefault());
+    }
+    
+    public static void writeContentCanonical(Content content, OutputStream out, GuideCodec codec) throws IOException {
+        JsonUtil.writeCanonicalJson(content.asJson(), out, codec);
     }
     
     public static void writeContent(Content content, File file, boolean usePrettyPrint) throws IOException {
-        JsonUtil.writeJson(content.asJson(), file, usePrettyPrint);
+        writeContent(content, file, usePrettyPrint, GuideCodec.getDefault());
+    }
+    
+    public static void writeContent(Content content, File file, boolean usePrettyPrint, GuideCodec codec) throws IOException {
+        JsonUtil.writeJson(content.asJson(), file, usePrettyPrint, codec);
+    }
+    
+    public static void writeContent(Content content, OutputStream out, boolean usePrettyPrint) throws IOException {
+        writeContent(content, out, usePrettyPrint, GuideCodec.getDefault());
+    }
+    
+    public static void writeContent(Content content, OutputStream out, boolean usePrettyPrint, GuideCodec codec) throws IOException {
+        JsonUtil.writeJson(content.asJson(), out, usePrettyPrint, codec);
+    }
+    
+    public static void writeContent(Content content, WritableByteChannel channel, boolean usePrettyPrint) throws IOException {
+        writeContent(content, channel, usePrettyPrint, GuideCodec.getDefault());
+    }
+    
+    public static void writeContent(Content content, WritableByteChannel channel, boolean usePrettyPrint, GuideCodec codec) throws IOException {
+        JsonUtil.writeJson(content.asJson(), Channels.newOutputStream(channel), usePrettyPrint, codec);
+    }
+    
+    public static void writeContent(Content content, WritableByteChannel channel, ByteBuffer buffer, boolean usePrettyPrint) throws IOException {
+        writeContent(content, channel, buffer, usePrettyPrint, GuideCodec.getDefault());
+    }
+    
+    public static void writeContent(Content content, WritableByteChannel channel, ByteBuffer buffer, boolean usePrettyPrint, GuideCodec codec) throws IOException {
+        JsonUtil.writeJson(content.asJson(), channel, buffer, usePrettyPrint, codec);
+    }
+    
+    private static int defaultMaxInFlight() {
+        return 4 * Runtime.getRuntime().availableProcessors();
+    }
+    
+    private static <T> BulkReadResult<T> readAll(Path directory, Executor executor, int maxInFlight, Function<File, T> reader, Consumer<? super T> consumer) throws IOException {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("At least one file must be allowed in flight.");
+        }
+        Map<Path, T> results = new ConcurrentHashMap<>();
+        Map<Path, Exception> errors = new ConcurrentHashMap<>();
+        AtomicInteger readCount = new AtomicInteger();
+        Semaphore permits = new Semaphore(maxInFlight);
+        try {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.json")) {
+                for (Path file : files) {
+                    if (!Files.isRegularFile(file)) continue;
+                    permits.acquire();
+                    try {
+                        executor.execute(() -> {
+                            try {
+                                T result = reader.apply(file.toFile());
+                                if (consumer != null) {
+                                    consumer.accept(result);
+                                } else {
+                                    results.put(file, result);
+                                }
+                                readCount.incrementAndGet();
+                            } catch (Exception ex) {
+                                errors.put(file, ex);
+                            } catch (StackOverflowError ex) {
+                                errors.put(file, new ExecutionException("Error while reading file " + file + ".", ex));
+                            } catch (VirtualMachineError ex) {
+                                throw ex;
+                            } catch (Throwable ex) {
+                                errors.put(file, new ExecutionException("Error while reading file " + file + ".", ex));
+                            } finally {
+                                permits.release();
+                            }
+                        });
+                    } catch (RejectedExecutionException ex) {
+                        permits.release();
+                        errors.put(file, ex);
+                    }
+                }
+            } finally {
+                permits.acquire(maxInFlight);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading directory " + directory + ".");
+        }
+        return new BulkReadResult<>(new TreeMap<>(results), new TreeMap<>(errors), readCount.get());
+    }
+    
+    /**
+     * Iterator over the guides of newline-delimited JSON or a top-level JSON array.
+     */
+    private static final class GuideIterator implements Iterator<Guide> {
+        private final JsonParser parser;
+        private final GuideCodec codec;
+        private final boolean isArray;
+        private boolean hasNext;
+        
+        private GuideIterator(JsonParser parser, GuideCodec codec) throws IOException {
+            this.parser = parser;
+            this.codec = codec;
+            JsonToken token = parser.nextToken();
+            isArray = token == JsonToken.START_ARRAY;
+            if (isArray) {
+                token = parser.nextToken();
+            }
+            hasNext = token == JsonToken.START_OBJECT;
+            checkToken(token);
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+        
+        @Override
+        public Guide next() {
+            if (!hasNext) {
+                throw new NoSuchElementException();
+            }
+            try {
+                Guide guide = GuideReader.readGuide(parser, codec);
+                JsonToken token = parser.nextToken();
+                hasNext = token == JsonToken.START_OBJECT;
+                checkToken(token);
+                return guide;
+            } catch (IOException ex) {
+                hasNext = false;
+                throw new UncheckedIOException(ex);
+            }
+        }
+        
+        private void checkToken(JsonToken token) {
+            if (token != JsonToken.START_OBJECT && token != (isArray ? JsonToken.END_ARRAY : null)) {
+                hasNext = false;
+                throw new IllegalArgumentException("Invalid entry in guide collection, object expected.");
+            }
+        }
+        
+        private void close() {
+            try {
+                parser.close();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
     }
 }
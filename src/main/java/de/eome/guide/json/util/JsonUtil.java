@@ -1,24 +1,37 @@
 package de.eome.guide.json.util;
 
 import com.fasterxml.jackson.core.JsonEncoding;
-import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 public final class JsonUtil {
-    private static final JsonFactory factory = new JsonFactory();
-    
     private JsonUtil() {};
     
     public static ArrayNode getOrCreateArray(ObjectNode parent, String fieldId) {
@@ -51,7 +64,9 @@ public final class JsonUtil {
                 indexesToRemove.add(i);
             }
         }
-        indexesToRemove.forEach(i -> array.remove(i));
+        for (int i = indexesToRemove.size() - 1; i >= 0; i--) {
+            array.remove(indexesToRemove.get(i));
+        }
         return !indexesToRemove.isEmpty();
     }
     
@@ -63,7 +78,9 @@ public final class JsonUtil {
                 indexesToRemove.add(i);
             }
         }
-        indexesToRemove.forEach(i -> array.remove(i));
+        for (int i = indexesToRemove.size() - 1; i >= 0; i--) {
+            array.remove(indexesToRemove.get(i));
+        }
         return !indexesToRemove.isEmpty();
     }
     
@@ -152,29 +169,174 @@ public final class JsonUtil {
     }
     
     public static String exportJson(JsonNode jsonNode, boolean usePrettyPrint) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        String output;
-        try (StringWriter writer = new StringWriter()) {
-            JsonGenerator gen = factory.createGenerator(writer);
-            gen.useDefaultPrettyPrinter();
-            mapper.writeTree(gen, jsonNode);
-            output = writer.toString();
-        }
-        return output;
+        return exportJson(jsonNode, usePrettyPrint, GuideCodec.getDefault());
+    }
+    
+    public static String exportJson(JsonNode jsonNode, boolean usePrettyPrint, GuideCodec codec) throws IOException {
+        return codec.getWriter(usePrettyPrint).writeValueAsString(jsonNode);
     }
     
     public static void writeJson(JsonNode jsonNode, File file, boolean usePrettyPrint) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        JsonGenerator gen = factory.createGenerator(file, JsonEncoding.UTF8);
-        gen.useDefaultPrettyPrinter();
-        mapper.writeTree(gen, jsonNode);
+        writeJson(jsonNode, file, usePrettyPrint, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Writes a JSON node to a file, replacing the file atomically.
+     * The JSON is written to a temporary file in the same directory which is moved over the target once it is complete,
+     * so a crash while writing never leaves a truncated file behind.
+     * @param jsonNode Node to write.
+     * @param file File to write the node in.
+     * @param usePrettyPrint If set to <code>true</code>, whitespaces and indentation are used.
+     * @param codec Codec to serialize the node with.
+     * @throws IOException Failed to write or move the file.
+     */
+    public static void writeJson(JsonNode jsonNode, File file, boolean usePrettyPrint, GuideCodec codec) throws IOException {
+        writeJson(jsonNode, file, usePrettyPrint, false, codec);
+    }
+    
+    /**
+     * Writes a JSON node to a file, replacing the file atomically, see {@link #writeJson(JsonNode, File, boolean, GuideCodec)}.
+     * @param jsonNode Node to write.
+     * @param file File to write the node in.
+     * @param usePrettyPrint If set to <code>true</code>, whitespaces and indentation are used.
+     * @param forceToDisk If set to <code>true</code>, the file content and its rename are forced to disk before returning.
+     * @param codec Codec to serialize the node with.
+     * @throws IOException Failed to write or move the file.
+     */
+    public static void writeJson(JsonNode jsonNode, File file, boolean usePrettyPrint, boolean forceToDisk, GuideCodec codec) throws IOException {
+        ObjectWriter writer = codec.getWriter(usePrettyPrint).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        writeAtomically(file.toPath(), forceToDisk, out -> writer.writeValue(out, jsonNode));
+    }
+    
+    /**
+     * Writes data to a file, replacing the file atomically via a temporary file in the same directory.
+     * @param file File to write.
+     * @param data Data to write.
+     * @param forceToDisk If set to <code>true</code>, the file content and its rename are forced to disk before returning.
+     * @throws IOException Failed to write or move the file.
+     */
+    public static void writeAtomically(Path file, byte[] data, boolean forceToDisk) throws IOException {
+        writeAtomically(file, forceToDisk, out -> out.write(data));
+    }
+    
+    private interface Output {
+        void writeTo(OutputStream out) throws IOException;
+    }
+    
+    private static void writeAtomically(Path file, boolean forceToDisk, Output output) throws IOException {
+        Path target = file.toAbsolutePath();
+        Path directory = target.getParent();
+        Path tempFile = directory.resolve("." + target.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+                output.writeTo(out);
+                out.flush();
+                if (forceToDisk) channel.force(true);
+            }
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(tempFile);
+            throw ex;
+        }
+        if (forceToDisk) {
+            try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (IOException ex) {
+                // Directories cannot be forced on all platforms, the rename is still atomic.
+            }
+        }
+    }
+    
+    public static void writeJson(JsonNode jsonNode, OutputStream out, boolean usePrettyPrint) throws IOException {
+        writeJson(jsonNode, out, usePrettyPrint, GuideCodec.getDefault());
+    }
+    
+    public static void writeJson(JsonNode jsonNode, OutputStream out, boolean usePrettyPrint, GuideCodec codec) throws IOException {
+        codec.getWriter(usePrettyPrint).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(out, jsonNode);
+        out.flush();
+    }
+    
+    public static void writeJson(JsonNode jsonNode, WritableByteChannel channel, ByteBuffer buffer, boolean usePrettyPrint) throws IOException {
+        writeJson(jsonNode, channel, buffer, usePrettyPrint, GuideCodec.getDefault());
+    }
+    
+    public static void writeJson(JsonNode jsonNode, WritableByteChannel channel, ByteBuffer buffer, boolean usePrettyPrint, GuideCodec codec) throws IOException {
+        writeJson(jsonNode, new ChannelOutputStream(channel, buffer), usePrettyPrint, codec);
+    }
+    
+    /**
+     * Exports a JSON node in canonical form.
+     * Object fields are sorted by name and no insignificant whitespace is written, so equal nodes always result in identical strings.
+     * @param jsonNode Node to export.
+     * @return Canonical JSON string.
+     * @throws IOException Failed to serialize the node.
+     */
+    public static String exportCanonicalJson(JsonNode jsonNode) throws IOException {
+        return exportCanonicalJson(jsonNode, GuideCodec.getDefault());
+    }
+    
+    public static String exportCanonicalJson(JsonNode jsonNode, GuideCodec codec) throws IOException {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator gen = codec.getFactory().createGenerator(writer)) {
+            writeCanonical(gen, jsonNode);
+        }
+        return writer.toString();
+    }
+    
+    /**
+     * Writes a JSON node in canonical UTF-8 encoded form to an output stream, see {@link #exportCanonicalJson(JsonNode)}.
+     * The stream is not closed.
+     * @param jsonNode Node to write.
+     * @param out Stream to write the JSON in.
+     * @throws IOException Failed to write to the given stream.
+     */
+    public static void writeCanonicalJson(JsonNode jsonNode, OutputStream out) throws IOException {
+        writeCanonicalJson(jsonNode, out, GuideCodec.getDefault());
+    }
+    
+    public static void writeCanonicalJson(JsonNode jsonNode, OutputStream out, GuideCodec codec) throws IOException {
+        try (JsonGenerator gen = codec.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            writeCanonical(gen, jsonNode);
+        }
+        out.flush();
+    }
+    
+    private static void writeCanonical(JsonGenerator gen, JsonNode jsonNode) throws IOException {
+        if (jsonNode.isObject()) {
+            List<String> fieldNames = new ArrayList<>(jsonNode.size());
+            jsonNode.fieldNames().forEachRemaining(fieldNames::add);
+            Collections.sort(fieldNames);
+            gen.writeStartObject();
+            for (String fieldName : fieldNames) {
+                gen.writeFieldName(fieldName);
+                writeCanonical(gen, jsonNode.get(fieldName));
+            }
+            gen.writeEndObject();
+        } else if (jsonNode.isArray()) {
+            gen.writeStartArray();
+            for (JsonNode entry : jsonNode) {
+                writeCanonical(gen, entry);
+            }
+            gen.writeEndArray();
+        } else {
+            gen.writeTree(jsonNode);
+        }
     }
     
     public static ObjectNode readJson(String jsonString) throws IllegalArgumentException {
+        return readJson(jsonString, GuideCodec.getDefault());
+    }
+    
+    public static ObjectNode readJson(String jsonString, GuideCodec codec) throws IllegalArgumentException {
         ObjectNode objectNode;
-        ObjectMapper mapper = new ObjectMapper();
         try {
-            JsonNode node = mapper.readTree(jsonString);
+            JsonNode node = codec.getReader().readValue(jsonString);
             if (!node.isObject()) {
                 throw new IllegalArgumentException("The given string does not encode a valid JSON object.");
             }
@@ -186,11 +348,21 @@ public final class JsonUtil {
     }
     
     public static ObjectNode readJson(File file) throws IllegalArgumentException {
+        return readJson(file, GuideCodec.getDefault());
+    }
+    
+    /**
+     * Reads a JSON object from a file encoded as JSON, Smile or CBOR.
+     * @param file File to read.
+     * @param codec Codec to parse the file with.
+     * @return JSON object.
+     * @throws IllegalArgumentException Failed to read file or no valid JSON object.
+     */
+    public static ObjectNode readJson(File file, GuideCodec codec) throws IllegalArgumentException {
         ObjectNode objectNode;
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode node = mapper.readTree(file);
-            if (!node.isObject()) {
+        try (InputStream in = new FileInputStream(file); JsonParser parser = codec.createParser(in)) {
+            JsonNode node = codec.getMapper().readTree(parser);
+            if (node == null || !node.isObject()) {
                 throw new IllegalArgumentException("The given file contains no valid JSON object.");
             }
             objectNode = (ObjectNode) node;
@@ -200,23 +372,113 @@ public final class JsonUtil {
         return objectNode;
     }
     
+    /**
+     * Decodes a JSON object encoded as JSON, Smile or CBOR.
+     * @param data Encoded data.
+     * @return JSON object.
+     * @throws IllegalArgumentException Unknown encoding or no valid JSON object.
+     */
+    public static ObjectNode decodeJson(byte[] data) throws IllegalArgumentException {
+        return decodeJson(data, GuideCodec.getDefault());
+    }
+    
+    public static ObjectNode decodeJson(byte[] data, GuideCodec codec) throws IllegalArgumentException {
+        try (JsonParser parser = codec.createParser(data)) {
+            return readObject(parser, codec);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Not a valid JSON object.", ex);
+        }
+    }
+    
+    /**
+     * Decodes a JSON object encoded as JSON, Smile or CBOR from a stream.
+     * The stream is not closed.
+     * @param in Stream to read.
+     * @return JSON object.
+     * @throws IllegalArgumentException Failed to read from the stream, unknown encoding or no valid JSON object.
+     */
+    public static ObjectNode decodeJson(InputStream in) throws IllegalArgumentException {
+        return decodeJson(in, GuideCodec.getDefault());
+    }
+    
+    public static ObjectNode decodeJson(InputStream in, GuideCodec codec) throws IllegalArgumentException {
+        try (JsonParser parser = codec.createParser(in)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            return readObject(parser, codec);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Stream not readable or no a valid JSON object.", ex);
+        }
+    }
+    
+    private static ObjectNode readObject(JsonParser parser, GuideCodec codec) throws IOException {
+        JsonNode node = codec.getMapper().readTree(parser);
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("The given data does not encode a valid JSON object.");
+        }
+        return (ObjectNode) node;
+    }
+    
+    /**
+     * Encodes a JSON node in the given format, JSON is written compact.
+     * @param jsonNode Node to encode.
+     * @param format Encoding to use.
+     * @return Encoded node.
+     * @throws IOException Failed to encode the node.
+     */
+    public static byte[] encodeJson(JsonNode jsonNode, DataFormat format) throws IOException {
+        return encodeJson(jsonNode, format, GuideCodec.getDefault());
+    }
+    
+    public static byte[] encodeJson(JsonNode jsonNode, DataFormat format, GuideCodec codec) throws IOException {
+        return codec.getMapper(format).writeValueAsBytes(jsonNode);
+    }
+    
+    /**
+     * Writes a JSON node in the given format to an output stream, JSON is written compact.
+     * The stream is not closed.
+     * @param jsonNode Node to encode.
+     * @param format Encoding to use.
+     * @param out Stream to write in.
+     * @throws IOException Failed to write to the given stream.
+     */
+    public static void encodeJson(JsonNode jsonNode, DataFormat format, OutputStream out) throws IOException {
+        encodeJson(jsonNode, format, out, GuideCodec.getDefault());
+    }
+    
+    public static void encodeJson(JsonNode jsonNode, DataFormat format, OutputStream out, GuideCodec codec) throws IOException {
+        codec.getMapper(format).writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(out, jsonNode);
+        out.flush();
+    }
+    
     public static ObjectNode mapToJsonObject(Map<String, Object> map) {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.convertValue(map, ObjectNode.class);
+        return mapToJsonObject(map, GuideCodec.getDefault());
+    }
+    
+    public static ObjectNode mapToJsonObject(Map<String, Object> map, GuideCodec codec) {
+        return codec.getMapper().convertValue(map, ObjectNode.class);
     }
     
     public static Map<String, Object> jsonObjectToMap(ObjectNode node) {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.convertValue(node, Map.class);
+        return jsonObjectToMap(node, GuideCodec.getDefault());
+    }
+    
+    public static Map<String, Object> jsonObjectToMap(ObjectNode node, GuideCodec codec) {
+        return codec.getMapper().convertValue(node, Map.class);
     }
     
     public static ArrayNode listToJsonArray(List<Object> list) {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.convertValue(list, ArrayNode.class);
+        return listToJsonArray(list, GuideCodec.getDefault());
+    }
+    
+    public static ArrayNode listToJsonArray(List<Object> list, GuideCodec codec) {
+        return codec.getMapper().convertValue(list, ArrayNode.class);
     }
     
     public static List<Object> jsonArrayToList(ArrayNode node) {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.convertValue(node, List.class);
+        return jsonArrayToList(node, GuideCodec.getDefault());
+    }
+    
+    public static List<Object> jsonArrayToList(ArrayNode node, GuideCodec codec) {
+        return codec.getMapper().convertValue(node, List.class);
     }
 }
@@ -0,0 +1,220 @@
+package de.eome.guide.json.util;
+
+import de.eome.guide.api.ContentHolder;
+import de.eome.guide.json.ChangeEvent;
+import de.eome.guide.json.Guide;
+import de.eome.guide.json.Option;
+import de.eome.guide.json.Step;
+import de.eome.guide.json.UserRequest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves content ids along language fallback chains, e.g., <code>de-AT, de-DE, de, en-GB</code>.
+ * The chain of a requested language is compiled once from the fallback rules: the language itself, its fallbacks and their fallbacks in depth-first order,
+ * followed by the default chain. Every language occurs only once in a chain, so cyclic rules are allowed.
+ * Resolving a guide resolves the content ids of the guide, its steps and options in one pass, the result is memoized per guide and language
+ * until a content id, step or option of the guide changes.
+ */
+public class LanguageResolver {
+    private final Map<String, List<String>> fallbacks;
+    private final List<String> defaultChain;
+    private final ConcurrentHashMap<String, String[]> chains;
+    private final Map<Guide, Memo> memos;
+
+    /**
+     * Creates a resolver.
+     * @param fallbacks Map of language ids to the languages to try next, in order.
+     * @param defaultChain Languages tried after all fallbacks, e.g., the default language of the platform.
+     */
+    public LanguageResolver(Map<String, ? extends List<String>> fallbacks, List<String> defaultChain) {
+        this.fallbacks = new HashMap<>();
+        fallbacks.forEach((languageId, languageFallbacks) -> this.fallbacks.put(languageId, new ArrayList<>(languageFallbacks)));
+        this.defaultChain = new ArrayList<>(defaultChain);
+        this.chains = new ConcurrentHashMap<>();
+        this.memos = Collections.synchronizedMap(new WeakHashMap<>());
+    }
+
+    /**
+     * Returns the compiled fallback chain of a language.
+     * @param languageId Requested language.
+     * @return Languages to try in order, starting with the requested one.
+     */
+    public List<String> getChain(String languageId) {
+        return Collections.unmodifiableList(Arrays.asList(chain(languageId)));
+    }
+
+    private String[] chain(String languageId) {
+        return chains.computeIfAbsent(languageId, this::compileChain);
+    }
+
+    private String[] compileChain(String languageId) {
+        Set<String> chain = new LinkedHashSet<>();
+        addWithFallbacks(chain, languageId);
+        chain.addAll(defaultChain);
+        return chain.toArray(new String[chain.size()]);
+    }
+
+    private void addWithFallbacks(Set<String> chain, String languageId) {
+        if (!chain.add(languageId)) return;
+        List<String> languageFallbacks = fallbacks.get(languageId);
+        if (languageFallbacks != null) {
+            languageFallbacks.forEach(fallback -> addWithFallbacks(chain, fallback));
+        }
+    }
+
+    /**
+     * Returns the content id of the first language of the fallback chain the holder has a content id for.
+     * @param holder Guide, step or option.
+     * @param languageId Requested language.
+     * @return Content id or <code>null</code> if the holder has no content id for any language of the chain.
+     */
+    public String resolve(ContentHolder holder, String languageId) {
+        return resolve(holder.getContentIds(), chain(languageId));
+    }
+
+    private static String resolve(Map<String, String> contentIds, String[] chain) {
+        if (contentIds.isEmpty()) return null;
+        for (String languageId : chain) {
+            String contentId = contentIds.get(languageId);
+            if (contentId != null) return contentId;
+        }
+        return null;
+    }
+
+    /**
+     * Resolves all content ids of a guide for a language.
+     * @param guide Guide to resolve.
+     * @param languageId Requested language.
+     * @return Resolved content ids, shared between calls until the guide changes.
+     */
+    public ResolvedContentIds resolve(Guide guide, String languageId) {
+        Memo memo;
+        synchronized (memos) {
+            memo = memos.get(guide);
+            if (memo == null) {
+                memo = new Memo();
+                guide.addChangeListener(memo::changePerformed);
+                memos.put(guide, memo);
+            }
+        }
+        ResolvedContentIds resolved = memo.resolved.get(languageId);
+        if (resolved == null) {
+            resolved = resolveGuide(guide, chain(languageId));
+            memo.resolved.putIfAbsent(languageId, resolved);
+        }
+        return resolved;
+    }
+
+    private static ResolvedContentIds resolveGuide(Guide guide, String[] chain) {
+        List<Step> steps = guide.getSteps();
+        String[] stepIds = new String[steps.size()];
+        String[] stepContentIds = new String[steps.size()];
+        String[][] optionContentIds = new String[steps.size()][];
+        for (int i = 0; i < stepIds.length; i++) {
+            Step step = steps.get(i);
+            stepIds[i] = step.getId();
+            stepContentIds[i] = resolve(step.getContentIds(), chain);
+            if (step instanceof UserRequest) {
+                List<Option> options = ((UserRequest) step).getOptions();
+                optionContentIds[i] = new String[options.size()];
+                for (int j = 0; j < options.size(); j++) {
+                    optionContentIds[i][j] = resolve(options.get(j).getContentIds(), chain);
+                }
+            }
+        }
+        return new ResolvedContentIds(resolve(guide.getContentIds(), chain), stepIds, stepContentIds, optionContentIds);
+    }
+
+    /**
+     * Memoized results of a guide, cleared on changes affecting content ids. Holds no reference to the guide.
+     */
+    private static final class Memo {
+        private final ConcurrentHashMap<String, ResolvedContentIds> resolved = new ConcurrentHashMap<>();
+
+        private void changePerformed(ChangeEvent event) {
+            switch (event.getProperty()) {
+                case "content":
+                case "steps":
+                case "options":
+                case "id":
+                    resolved.clear();
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Content ids of a guide resolved for one language, addressed by step position or id.
+     */
+    public static final class ResolvedContentIds {
+        private final String guideContentId;
+        private final String[] stepIds;
+        private final String[] stepContentIds;
+        private final String[][] optionContentIds;
+        private volatile Map<String, Integer> stepPositions;
+
+        private ResolvedContentIds(String guideContentId, String[] stepIds, String[] stepContentIds, String[][] optionContentIds) {
+            this.guideContentId = guideContentId;
+            this.stepIds = stepIds;
+            this.stepContentIds = stepContentIds;
+            this.optionContentIds = optionContentIds;
+        }
+
+        public String getGuideContentId() {
+            return guideContentId;
+        }
+
+        /**
+         * Returns the resolved content id of the step at the given position.
+         * @param stepIndex Step position.
+         * @return Content id or <code>null</code>.
+         */
+        public String getStepContentId(int stepIndex) {
+            return stepContentIds[stepIndex];
+        }
+
+        /**
+         * Returns the resolved content id of the first step with the given id.
+         * @param stepId Step id.
+         * @return Content id or <code>null</code> if no step has the id or it has no content id for the chain.
+         */
+        public String getStepContentId(String stepId) {
+            Map<String, Integer> positions = stepPositions;
+            if (positions == null) {
+                positions = new HashMap<>();
+                for (int i = 0; i < stepIds.length; i++) {
+                    positions.putIfAbsent(stepIds[i], i);
+                }
+                stepPositions = positions;
+            }
+            Integer position = positions.get(stepId);
+            return position != null ? stepContentIds[position] : null;
+        }
+
+        /**
+         * Returns the resolved content id of an option of a user request.
+         * @param stepIndex Position of the user request.
+         * @param optionIndex Position of the option.
+         * @return Content id or <code>null</code>.
+         * @throws IndexOutOfBoundsException The step is no user request or has no option at the given position.
+         */
+        public String getOptionContentId(int stepIndex, int optionIndex) {
+            String[] contentIds = optionContentIds[stepIndex];
+            if (contentIds == null) {
+                throw new IndexOutOfBoundsException("The step at position " + stepIndex + " is no user request.");
+            }
+            return contentIds[optionIndex];
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package de.eome.guide.json.util;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.eome.guide.json.Content;
+import de.eome.guide.json.Guide;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous writer storing guides and contents as <code>&lt;id&gt;.json</code> files in a directory.
+ * Saving serializes the object on the calling thread and returns immediately, the file is written in the background once the coalescing window elapsed.
+ * All saves of the same id within the window result in one physical write of the latest state, their futures complete together.
+ * Files are replaced atomically, see {@link JsonUtil#writeAtomically(Path, byte[], boolean)}, so a crash leaves either the old or the new version.
+ */
+public class WriteBehindWriter implements Closeable {
+    private final Path directory;
+    private final long windowNanos;
+    private final boolean forceToDisk;
+    private final boolean usePrettyPrint;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+    private final GuideCodec codec;
+    private final ConcurrentHashMap<Path, FileState> files;
+    private volatile boolean closed;
+
+    /**
+     * Creates a writer using its own background thread and the default codec.
+     * @param directory Directory to write the files in.
+     * @param window Time to wait for further saves of the same id before writing.
+     * @param forceToDisk If set to <code>true</code>, every write is forced to disk before its future completes.
+     */
+    public WriteBehindWriter(Path directory, Duration window, boolean forceToDisk) {
+        this(directory, window, forceToDisk, false, Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "guide-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        }), true, GuideCodec.getDefault());
+    }
+
+    /**
+     * Creates a writer using the given scheduler for the writes.
+     * The scheduler is not shut down when the writer is closed.
+     * @param directory Directory to write the files in.
+     * @param window Time to wait for further saves of the same id before writing.
+     * @param forceToDisk If set to <code>true</code>, every write is forced to disk before its future completes.
+     * @param usePrettyPrint If set to <code>true</code>, whitespaces and indentation are used.
+     * @param scheduler Scheduler to perform the writes on.
+     * @param codec Codec to serialize guides and contents with.
+     */
+    public WriteBehindWriter(Path directory, Duration window, boolean forceToDisk, boolean usePrettyPrint, ScheduledExecutorService scheduler, GuideCodec codec) {
+        this(directory, window, forceToDisk, usePrettyPrint, scheduler, false, codec);
+    }
+
+    private WriteBehindWriter(Path directory, Duration window, boolean forceToDisk, boolean usePrettyPrint, ScheduledExecutorService scheduler, boolean ownsScheduler, GuideCodec codec) {
+        if (window.isNegative()) {
+            throw new IllegalArgumentException("The coalescing window must not be negative.");
+        }
+        this.directory = directory;
+        this.windowNanos = window.toNanos();
+        this.forceToDisk = forceToDisk;
+        this.usePrettyPrint = usePrettyPrint;
+        this.scheduler = scheduler;
+        this.ownsScheduler = ownsScheduler;
+        this.codec = codec;
+        this.files = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Saves a guide as <code>&lt;guideId&gt;.json</code>.
+     * @param guide Guide to save, must not be modified by other threads during the call.
+     * @return Future completed with the written file once the guide or a later state of it is written.
+     */
+    public CompletableFuture<Path> save(Guide guide) {
+        return save(guide.getId(), guide.asJson());
+    }
+
+    /**
+     * Saves a content as <code>&lt;contentId&gt;.json</code>.
+     * @param content Content to save, must not be modified by other threads during the call.
+     * @return Future completed with the written file once the content or a later state of it is written.
+     */
+    public CompletableFuture<Path> save(Content content) {
+        return save(content.getId(), content.asJson());
+    }
+
+    private CompletableFuture<Path> save(String id, ObjectNode json) {
+        CompletableFuture<Path> failed = new CompletableFuture<>();
+        if (closed) {
+            failed.completeExceptionally(new IllegalStateException("The writer is closed."));
+            return failed;
+        }
+        byte[] data;
+        try {
+            data = codec.getWriter(usePrettyPrint).writeValueAsBytes(json);
+        } catch (IOException ex) {
+            failed.completeExceptionally(ex);
+            return failed;
+        }
+        FileState state = files.computeIfAbsent(directory.resolve(id + ".json"), FileState::new);
+        synchronized (state) {
+            state.version++;
+            if (state.pending != null) {
+                state.pending.data = data;
+                state.pending.version = state.version;
+                return state.pending.future;
+            }
+            Pending pending = new Pending(data, state.version);
+            state.pending = pending;
+            try {
+                scheduler.schedule(() -> write(state), windowNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException ex) {
+                state.pending = null;
+                pending.future.completeExceptionally(ex);
+            }
+            return pending.future;
+        }
+    }
+
+    /**
+     * Writes the pending state of a file unless a newer state was written already.
+     * Writes of the same file are serialized, so an older state never replaces a newer one.
+     */
+    private void write(FileState state) {
+        Pending pending;
+        synchronized (state) {
+            pending = state.pending;
+            state.pending = null;
+        }
+        if (pending == null) return;
+        synchronized (state.writeLock) {
+            try {
+                if (pending.version > state.writtenVersion) {
+                    JsonUtil.writeAtomically(state.file, pending.data, forceToDisk);
+                    state.writtenVersion = pending.version;
+                }
+                pending.future.complete(state.file);
+            } catch (IOException | RuntimeException ex) {
+                pending.future.completeExceptionally(ex);
+            }
+        }
+    }
+
+    /**
+     * Writes all pending saves without waiting for their coalescing window.
+     * @return Future completed once all saves pending at the time of the call are written.
+     */
+    public CompletableFuture<Void> flush() {
+        List<CompletableFuture<Path>> futures = new ArrayList<>();
+        for (FileState state : files.values()) {
+            synchronized (state) {
+                if (state.pending == null) continue;
+                futures.add(state.pending.future);
+                try {
+                    scheduler.execute(() -> write(state));
+                } catch (RejectedExecutionException ex) {
+                    write(state);
+                }
+            }
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]));
+    }
+
+    /**
+     * Rejects further saves, writes all pending saves and waits for them to complete.
+     * The scheduler is shut down if it was created by this writer.
+     * @throws IOException At least one pending save failed.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            flush().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing pending saves.");
+        } catch (ExecutionException ex) {
+            throw ex.getCause() instanceof IOException ? (IOException) ex.getCause() : new IOException("Failed to write pending saves.", ex.getCause());
+        } finally {
+            if (ownsScheduler) scheduler.shutdown();
+        }
+    }
+
+    /**
+     * Write state of a single file.
+     */
+    private static final class FileState {
+        private final Path file;
+        private final Object writeLock = new Object();
+        private long version;
+        private long writtenVersion;
+        private Pending pending;
+
+        private FileState(Path file) {
+            this.file = file;
+        }
+    }
+
+    /**
+     * Latest unwritten state of a file together with the future of all saves coalesced into it.
+     */
+    private static final class Pending {
+        private final CompletableFuture<Path> future = new CompletableFuture<>();
+        private byte[] data;
+        private long version;
+
+        private Pending(byte[] data, long version) {
+            this.data = data;
+            this.version = version;
+        }
+    }
+}
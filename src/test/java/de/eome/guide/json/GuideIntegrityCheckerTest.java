@@ -0,0 +1,55 @@
+package de.eome.guide.json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class GuideIntegrityCheckerTest {
+
+    public GuideIntegrityCheckerTest() {
+    }
+
+    /**
+     * Test of check method, of class GuideIntegrityChecker.
+     */
+    @Test
+    public void testCheck() {
+        System.out.println("check");
+        Guide guide = new Guide("test-guide");
+        Action first = new Action("step-01");
+        first.setNext("step-03");
+        guide.addStep(first);
+        guide.addStep(new Action("step-02"));
+        UserRequest userRequest = new UserRequest("step-03");
+        Option option = new Option();
+        option.setNext("unknown");
+        userRequest.addOption(option);
+        guide.addStep(userRequest);
+        guide.addStep(new UserRequest("step-01"));
+        assertEquals(Arrays.asList(
+                "/steps/1: Step not reachable from the first step.",
+                "/steps/2/userRequest/options/0/next: Unknown next step unknown.",
+                "/steps/3/id: Step id step-01 is already used by the step at position 0.",
+                "/steps/3/userRequest/options: User request without options.",
+                "/steps/3: Step not reachable from the first step."), toStrings(GuideIntegrityChecker.check(guide)));
+
+        guide.removeStep(3);
+        guide.removeStep(1);
+        option.setNext("step-01");
+        assertEquals(Arrays.asList(), toStrings(GuideIntegrityChecker.check(guide)));
+
+        userRequest.setNext("removed");
+        List<GuideIntegrityChecker.Issue> issues = GuideIntegrityChecker.check(guide);
+        assertEquals(1, issues.size());
+        assertEquals(GuideIntegrityChecker.Issue.Type.DANGLING_NEXT, issues.get(0).getType());
+        assertEquals("step-03", issues.get(0).getStepId());
+    }
+
+    private static List<String> toStrings(List<GuideIntegrityChecker.Issue> issues) {
+        List<String> strings = new ArrayList<>();
+        issues.forEach(issue -> strings.add(issue.toString()));
+        return strings;
+    }
+}
@@ -6,9 +6,16 @@
 package de.eome.guide.json;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -225,19 +232,43 @@ public class GuideTest {
         assertFalse(testGuide.hasAllAccess());
     }
 
+    /**
+     * Test of canAccess method, of class Guide.
+     */
+    @Test
+    public void testCanAccess() {
+        System.out.println("canAccess");
+        testGuide.revokeAllAccess();
+        assertTrue(testGuide.canAccess("user-01", Collections.emptyList()));
+        assertTrue(testGuide.canAccess("user-02", Arrays.asList("group-02", "group-01")));
+        assertFalse(testGuide.canAccess("user-02", Arrays.asList("group-02", "group-03")));
+        testGuide.revokeGroupAccess("group-01");
+        assertFalse(testGuide.canAccess(null, Arrays.asList("group-01")));
+        assertFalse(testGuide.asJson().path("access").toString().contains("group-01"));
+        testGuide.grantAllAccess();
+        assertTrue(testGuide.canAccess("user-02", Collections.emptyList()));
+        
+        Guide loaded = new Guide(testGuide.asJson().deepCopy());
+        assertTrue(loaded.hasUserAccess("user-01"));
+        assertTrue(loaded.hasAllAccess());
+        assertFalse(loaded.hasGroupAccess("group-01"));
+    }
+
     /**
      * Test of getAllTags method, of class Guide.
      */
     @Test
-    @Ignore
     public void testGetAllTags() {
         System.out.println("getAllTags");
-        Guide instance = null;
-        List<Tag> expResult = null;
-        List<Tag> result = instance.getAllTags();
-        assertEquals(expResult, result);
-        // TODO review the generated test code and remove the default call to fail.
-        fail("The test case is a prototype.");
+        List<Tag> expResult = Arrays.asList(new Tag(Tag.Type.CUSTOM, "customTag"), new Tag(Tag.Type.TYPED, "typedTag"));
+        assertEquals(expResult, testGuide.getAllTags());
+        assertSame(testGuide.getAllTags(), testGuide.getAllTags());
+        testGuide.addCustomTag("customTag");
+        assertEquals(2, testGuide.getAllTags().size());
+        testGuide.addCustomTag("typedTag");
+        assertEquals(3, testGuide.getAllTags().size());
+        assertEquals(Arrays.asList("customTag", "typedTag"), testGuide.getCustomTags());
+        assertEquals(Arrays.asList("typedTag"), testGuide.getTypedTags());
     }
 
     /**
@@ -323,47 +354,48 @@ public class GuideTest {
      * Test of getStep method, of class Guide.
      */
     @Test
-    @Ignore
     public void testGetStep() {
         System.out.println("getStep");
-        String stepId = "";
-        Guide instance = null;
-        Step expResult = null;
-        Step result = instance.getStep(stepId);
-        assertEquals(expResult, result);
-        // TODO review the generated test code and remove the default call to fail.
-        fail("The test case is a prototype.");
+        Action first = new Action("step-01");
+        Action second = new Action("step-02");
+        testGuide.addStep(first);
+        testGuide.addStep(second);
+        assertSame(first, testGuide.getStep("step-01"));
+        assertSame(second, testGuide.getStep("step-02"));
+        assertNull(testGuide.getStep("step-03"));
+        second.setId("step-03");
+        assertNull(testGuide.getStep("step-02"));
+        assertSame(second, testGuide.getStep("step-03"));
     }
 
     /**
      * Test of indexOfStep method, of class Guide.
      */
     @Test
-    @Ignore
     public void testIndexOfStep() {
         System.out.println("indexOfStep");
-        String stepId = "";
-        Guide instance = null;
-        int expResult = 0;
-        int result = instance.indexOfStep(stepId);
-        assertEquals(expResult, result);
-        // TODO review the generated test code and remove the default call to fail.
-        fail("The test case is a prototype.");
+        testGuide.addStep(new Action("step-01"));
+        testGuide.addStep(new Action("step-02"));
+        assertEquals(0, testGuide.indexOfStep("step-01"));
+        assertEquals(1, testGuide.indexOfStep("step-02"));
+        assertEquals(-1, testGuide.indexOfStep("step-03"));
     }
 
     /**
      * Test of addStep method, of class Guide.
      */
     @Test
-    @Ignore
     public void testAddStep_int_Step() {
         System.out.println("addStep");
-        int index = 0;
-        Step step = null;
-        Guide instance = null;
-        instance.addStep(index, step);
-        // TODO review the generated test code and remove the default call to fail.
-        fail("The test case is a prototype.");
+        testGuide.addStep(new Action("step-01"));
+        testGuide.addStep(new Action("step-03"));
+        Action step = new Action("step-02");
+        testGuide.addStep(1, step);
+        assertSame(step, testGuide.getSteps().get(1));
+        assertSame(step, testGuide.getStep("step-02"));
+        assertEquals(1, testGuide.indexOfStep("step-02"));
+        assertEquals(2, testGuide.indexOfStep("step-03"));
+        assertEquals("step-02", testGuide.asJson().path("steps").get(1).path("id").asText());
     }
 
     /**
@@ -384,16 +416,104 @@ public class GuideTest {
      * Test of removeStep method, of class Guide.
      */
     @Test
-    @Ignore
     public void testRemoveStep() {
         System.out.println("removeStep");
-        String stepId = "";
-        Guide instance = null;
-        de.eome.guide.json.Step expResult = null;
-        de.eome.guide.json.Step result = instance.removeStep(stepId);
-        assertEquals(expResult, result);
-        // TODO review the generated test code and remove the default call to fail.
-        fail("The test case is a prototype.");
+        Action first = new Action("step-01");
+        testGuide.addStep(first);
+        testGuide.addStep(new Action("step-02"));
+        testGuide.addStep(new Action("step-03"));
+        assertSame(first, testGuide.removeStep("step-01"));
+        assertNull(first.getParent());
+        assertNull(testGuide.getStep("step-01"));
+        assertNull(testGuide.removeStep("step-01"));
+        assertEquals(0, testGuide.indexOfStep("step-02"));
+        assertEquals(1, testGuide.indexOfStep("step-03"));
+        assertEquals(2, testGuide.asJson().path("steps").size());
+    }
+
+    /**
+     * Test of batch method, of class Guide.
+     */
+    @Test
+    public void testBatch() {
+        System.out.println("batch");
+        AtomicInteger updates = new AtomicInteger();
+        testGuide.addUpdateListener(updates::incrementAndGet);
+        testGuide.batch(guide -> {
+            for (int i = 0; i < 10; i++) {
+                Action step = new Action("step-" + i);
+                guide.addStep(step);
+                step.setContentId("de-DE", "content-" + i);
+            }
+            guide.batch(inner -> inner.addCustomTag("nested"));
+            assertEquals(0, updates.get());
+        });
+        assertEquals(1, updates.get());
+        assertEquals(10, testGuide.getSteps().size());
+        testGuide.batch(guide -> {});
+        assertEquals(1, updates.get());
+        testGuide.addCustomTag("single");
+        assertEquals(2, updates.get());
+    }
+
+    /**
+     * Test of addChangeListener method, of class Guide.
+     */
+    @Test
+    public void testAddChangeListener() {
+        System.out.println("addChangeListener");
+        List<ChangeEvent> events = new ArrayList<>();
+        testGuide.addChangeListener(events::add);
+        UserRequest request = new UserRequest("step-01");
+        Option option = new Option();
+        request.addOption(option);
+        testGuide.addStep(request);
+        testGuide.batch(guide -> option.setNext("step-02"));
+        request.setContentId("de-DE", "request-de");
+        testGuide.removeCustomTag("customTag");
+        
+        assertEquals(4, events.size());
+        ChangeEvent event = events.get(0);
+        assertEquals(ChangeEvent.Operation.ADD, event.getOperation());
+        assertEquals("steps", event.getProperty());
+        assertEquals(0, event.getIndex());
+        assertSame(request, event.getNewValue());
+        
+        event = events.get(1);
+        assertEquals(ChangeEvent.Operation.SET, event.getOperation());
+        assertEquals("next", event.getProperty());
+        assertNull(event.getOldValue());
+        assertEquals("step-02", event.getNewValue());
+        assertEquals(Arrays.asList(testGuide, request, option), event.getPath());
+        
+        event = events.get(2);
+        assertEquals("content", event.getProperty());
+        assertEquals("de-DE", event.getKey());
+        assertEquals("request-de", event.getNewValue());
+        
+        event = events.get(3);
+        assertEquals(ChangeEvent.Operation.REMOVE, event.getOperation());
+        assertEquals(new Tag(de.eome.guide.api.Tag.Type.CUSTOM, "customTag"), event.getOldValue());
+    }
+
+    /**
+     * Test of getLastUpdate method, of class Guide.
+     */
+    @Test
+    public void testGetLastUpdate() {
+        System.out.println("getLastUpdate");
+        Clock clock = Clock.fixed(Instant.parse("2018-11-05T10:15:30Z"), ZoneOffset.UTC);
+        Guide instance = new Guide("guide", clock);
+        assertEquals(Instant.parse("2018-11-05T10:15:30Z"), instance.getLastUpdate().toInstant());
+        assertEquals("2018-11-05T10:15:30Z", instance.asJson().path("lastUpdate").asText());
+        
+        instance.setClock(Clock.fixed(Instant.parse("2018-11-06T08:00:05Z"), ZoneOffset.UTC));
+        instance.addCustomTag("tag");
+        assertEquals(Instant.parse("2018-11-06T08:00:05Z"), instance.getLastUpdate().toInstant());
+        assertEquals("2018-11-06T08:00:05Z", instance.asJson().path("lastUpdate").asText());
+        
+        Guide loaded = new Guide(instance.asJson().deepCopy());
+        assertEquals(instance.getLastUpdate(), loaded.getLastUpdate());
     }
 
     /**
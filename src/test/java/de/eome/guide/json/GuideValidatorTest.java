@@ -0,0 +1,99 @@
+package de.eome.guide.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import de.eome.guide.json.util.GuideCodec;
+import de.eome.guide.json.util.GuideUtil;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class GuideValidatorTest {
+    private static final String INVALID_GUIDE = "{"
+            + "\"content\": {\"de-DE\": 1},"
+            + "\"access\": [\"@all\", \"@nobody\"],"
+            + "\"tags\": [\"#custom\", 2],"
+            + "\"steps\": ["
+            + "  {\"id\": \"step-01\", \"type\": \"action\", \"next\": 3},"
+            + "  {\"type\": \"chapter\"},"
+            + "  {\"id\": \"step-03\", \"userRequest\": {\"options\": [{\"next\": \"step-01\"}, \"option\"]}, \"type\": \"branch\"},"
+            + "  {\"id\": \"step-04\", \"type\": \"action\", \"userRequest\": 5},"
+            + "  {\"id\": \"step-05\", \"type\": \"unknown\"}"
+            + "]}";
+
+    public GuideValidatorTest() {
+    }
+
+    private static List<String> validateGuide(String json, int maxViolations) throws Exception {
+        List<String> violations = new ArrayList<>();
+        try (JsonParser parser = GuideCodec.getDefault().getFactory().createParser(json)) {
+            GuideValidator.validateGuide(parser, maxViolations).forEach(violation -> violations.add(violation.toString()));
+        }
+        return violations;
+    }
+
+    /**
+     * Test of validateGuide method, of class GuideValidator.
+     */
+    @Test
+    public void testValidateGuide() throws Exception {
+        System.out.println("validateGuide");
+        assertEquals(Arrays.asList(
+                "/content/de-DE: Invalid type of entry for map [content] , string expected.",
+                "/access/1: Missing or invalid access entry type.",
+                "/tags/1: Invalid entry for array [tags], string expected.",
+                "/steps/0/next: Invalid type of node [next], string expected.",
+                "/steps/1: Missing required text node [id].",
+                "/steps/1: Missing required text node [target].",
+                "/steps/2/userRequest/options/1: Invalid entry for array [userRequest.options], object expected.",
+                "/steps/4: Invalid step type: unknown",
+                "/: Missing required text node [id]."), validateGuide(INVALID_GUIDE, Integer.MAX_VALUE));
+        assertEquals(2, validateGuide(INVALID_GUIDE, 2).size());
+        List<String> malformed = validateGuide("{\"id\": \"guide\"", Integer.MAX_VALUE);
+        assertEquals(1, malformed.size());
+        assertTrue(malformed.get(0).startsWith("/id: Malformed input: "));
+
+        Guide guide = new Guide("test-guide");
+        guide.addStep(new Chapter("step-01", "other-guide"));
+        UserRequest userRequest = new UserRequest("step-02");
+        userRequest.addOption(new Option());
+        guide.addStep(userRequest);
+        assertEquals(Arrays.asList(), validateGuide(GuideUtil.exportGuide(guide, false), Integer.MAX_VALUE));
+    }
+
+    /**
+     * Test of validateContent method, of class GuideValidator.
+     */
+    @Test
+    public void testValidateContent() throws Exception {
+        System.out.println("validateContent");
+        String json = "{\"id\": \"content\", \"media\": {\"path\": 1}, \"hints\": [{\"icon\": \"info\"}]}";
+        List<String> violations = new ArrayList<>();
+        try (JsonParser parser = GuideCodec.getDefault().getFactory().createParser(json)) {
+            GuideValidator.validateContent(parser).forEach(violation -> violations.add(violation.toString()));
+        }
+        assertEquals(Arrays.asList(
+                "/media/path: Invalid type of node [path], string expected.",
+                "/media: Missing required text node [mimeType].",
+                "/hints/0: Missing required text node [text]."), violations);
+    }
+
+    /**
+     * Test of readTrustedGuide method, of class GuideReader.
+     */
+    @Test
+    public void testReadTrustedGuide() throws Exception {
+        System.out.println("readTrustedGuide");
+        Guide guide = new Guide("test-guide");
+        guide.addCustomTag("tag");
+        Action action = new Action("step-01");
+        action.setContentId("de-DE", "content-de");
+        guide.addStep(action);
+        guide.addStep(new UserRequest("step-02"));
+        byte[] data = GuideUtil.exportGuide(guide, false).getBytes("UTF-8");
+        Guide read = GuideUtil.decodeTrustedGuide(data);
+        assertEquals(GuideUtil.exportGuideCanonical(guide), GuideUtil.exportGuideCanonical(read));
+        assertEquals("content-de", read.getStep("step-01").getContentId("de-DE"));
+    }
+}
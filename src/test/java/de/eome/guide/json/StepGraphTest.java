@@ -0,0 +1,101 @@
+package de.eome.guide.json;
+
+import java.util.BitSet;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class StepGraphTest {
+    private Guide guide;
+    private Option retry;
+
+    public StepGraphTest() {
+    }
+
+    @Before
+    public void setUp() {
+        guide = new Guide("test-guide");
+        guide.addStep(new Action("step-01"));
+        UserRequest userRequest = new UserRequest("step-02");
+        Option skip = new Option();
+        skip.setNext("step-05");
+        userRequest.addOption(skip);
+        userRequest.addOption(new Option());
+        retry = new Option();
+        userRequest.addOption(retry);
+        guide.addStep(userRequest);
+        guide.addStep(new Chapter("step-03", "other-guide"));
+        Action action = new Action("step-04");
+        action.setNext("step-05");
+        guide.addStep(action);
+        guide.addStep(new Milestone("step-05"));
+        guide.addStep(new Action("step-06"));
+    }
+
+    /**
+     * Test of getStepGraph method, of class Guide.
+     */
+    @Test
+    public void testGetStepGraph() {
+        System.out.println("getStepGraph");
+        StepGraph graph = guide.getStepGraph();
+        assertSame(graph, guide.getStepGraph());
+        assertEquals(6, graph.size());
+        assertEquals(1, graph.indexOf("step-02"));
+        assertEquals(-1, graph.indexOf("unknown"));
+        assertEquals("branch", graph.getType(1));
+        assertEquals("other-guide", graph.getTarget(2));
+        assertEquals(2, graph.getNext(1));
+        assertEquals(3, graph.getOptionCount(1));
+        assertEquals(4, graph.getOptionNext(1, 0));
+        assertEquals(2, graph.getOptionNext(1, 1));
+        assertEquals(4, graph.getNext(3));
+        assertEquals(-1, graph.getNext(5));
+
+        guide.getSteps().get(4).setNext("unknown");
+        StepGraph changed = guide.getStepGraph();
+        assertNotSame(graph, changed);
+        assertEquals(-1, changed.getNext(4));
+        assertEquals(0, changed.getSuccessorCount(4));
+    }
+
+    /**
+     * Test of reachableFrom method, of class StepGraph.
+     */
+    @Test
+    public void testReachableFrom() {
+        System.out.println("reachableFrom");
+        guide.getSteps().get(4).setNext("step-04");
+        StepGraph graph = guide.getStepGraph();
+        BitSet reachable = graph.reachableFrom(2);
+        assertEquals(BitSet.valueOf(new long[] {0b11100}), reachable);
+        assertEquals(BitSet.valueOf(new long[] {0b100000}), graph.getUnreachable());
+        assertArrayEquals(new int[] {0, 1, 4}, graph.findPath(0, 4));
+        assertNull(graph.findPath(4, 0));
+    }
+
+    /**
+     * Test of hasCycle method, of class StepGraph.
+     */
+    @Test
+    public void testHasCycle() {
+        System.out.println("hasCycle");
+        StepGraph graph = guide.getStepGraph();
+        assertFalse(graph.hasCycle());
+        int[] order = graph.getTopologicalOrder();
+        assertEquals(6, order.length);
+        int[] rank = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            rank[order[i]] = i;
+        }
+        for (int step = 0; step < graph.size(); step++) {
+            for (int k = 0; k < graph.getSuccessorCount(step); k++) {
+                assertTrue(rank[step] < rank[graph.getSuccessor(step, k)]);
+            }
+        }
+
+        retry.setNext("step-01");
+        assertTrue(guide.getStepGraph().hasCycle());
+        assertNull(guide.getStepGraph().getTopologicalOrder());
+    }
+}
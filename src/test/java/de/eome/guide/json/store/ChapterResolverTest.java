@@ -0,0 +1,91 @@
+package de.eome.guide.json.store;
+
+import de.eome.guide.json.Action;
+import de.eome.guide.json.Chapter;
+import de.eome.guide.json.Guide;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ChapterResolverTest {
+    private Map<String, Guide> guides;
+    private AtomicInteger loads;
+    private ChapterResolver resolver;
+
+    public ChapterResolverTest() {
+    }
+
+    @Before
+    public void setUp() {
+        guides = new HashMap<>();
+        Guide main = new Guide("main");
+        main.addStep(new Action("step-01"));
+        main.addStep(new Chapter("step-02", "sub"));
+        main.addStep(new Action("step-03"));
+        guides.put("main", main);
+        Guide sub = new Guide("sub");
+        sub.addStep(new Action("step-01"));
+        sub.addStep(new Chapter("step-02", "leaf"));
+        guides.put("sub", sub);
+        Guide leaf = new Guide("leaf");
+        leaf.addStep(new Action("step-01"));
+        guides.put("leaf", leaf);
+        loads = new AtomicInteger();
+        resolver = new ChapterResolver(guideId -> {
+            loads.incrementAndGet();
+            return guides.get(guideId);
+        });
+    }
+
+    /**
+     * Test of expand method, of class ChapterResolver.
+     */
+    @Test
+    public void testExpand() throws Exception {
+        System.out.println("expand");
+        List<ChapterResolver.ExpandedStep> view = resolver.expand("main");
+        assertEquals(6, view.size());
+        assertEquals("leaf", view.get(4).getGuideId());
+        assertEquals(2, view.get(4).getDepth());
+        assertEquals("step-03", view.get(5).getStep().getId());
+        assertSame(view, resolver.expand("main"));
+        assertEquals(3, loads.get());
+
+        guides.get("leaf").addStep(new Action("step-02"));
+        List<ChapterResolver.ExpandedStep> changed = resolver.expand("main");
+        assertNotSame(view, changed);
+        assertEquals(7, changed.size());
+        assertEquals(3, loads.get());
+
+        assertSame(changed, resolver.expand("main"));
+        guides.get("main").getSteps().get(0).setContentId("de-DE", "content");
+        assertSame(changed, resolver.expand("main"));
+
+        guides.put("leaf", new Guide("leaf"));
+        resolver.invalidate("leaf");
+        assertEquals(5, resolver.expand("main").size());
+        assertNull(resolver.expand("unknown"));
+    }
+
+    /**
+     * Test of findCycle method, of class ChapterResolver.
+     */
+    @Test
+    public void testFindCycle() throws Exception {
+        System.out.println("findCycle");
+        assertTrue(resolver.findCycle("main").isEmpty());
+        assertEquals(Arrays.asList("sub", "leaf"), Arrays.asList(resolver.getTransitiveDependencies("main").toArray()));
+
+        guides.get("leaf").addStep(new Chapter("step-02", "sub"));
+        assertEquals(Arrays.asList("sub", "leaf", "sub"), resolver.findCycle("main"));
+        List<ChapterResolver.ExpandedStep> view = resolver.expand("main");
+        assertEquals(7, view.size());
+        assertTrue(view.get(5).isUnresolved());
+        assertFalse(view.get(1).isUnresolved());
+    }
+}
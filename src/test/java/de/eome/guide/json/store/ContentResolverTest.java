@@ -0,0 +1,136 @@
+package de.eome.guide.json.store;
+
+import de.eome.guide.json.Action;
+import de.eome.guide.json.Content;
+import de.eome.guide.json.Guide;
+import de.eome.guide.json.Option;
+import de.eome.guide.json.UserRequest;
+import de.eome.guide.json.util.GuideUtil;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class ContentResolverTest {
+    private Map<String, Long> versions;
+    private AtomicInteger loads;
+    private ContentResolver.ContentLoader loader;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    public ContentResolverTest() {
+    }
+
+    @Before
+    public void setUp() {
+        versions = new HashMap<>();
+        loads = new AtomicInteger();
+        loader = new ContentResolver.ContentLoader() {
+            @Override
+            public Content load(String contentId) {
+                if (contentId.startsWith("missing")) return null;
+                loads.incrementAndGet();
+                return new Content(contentId);
+            }
+
+            @Override
+            public long version(String contentId) {
+                return versions.getOrDefault(contentId, 0L);
+            }
+        };
+    }
+
+    /**
+     * Test of resolve method, of class ContentResolver.
+     */
+    @Test
+    public void testResolve() throws Exception {
+        System.out.println("resolve");
+        ContentResolver resolver = new ContentResolver(loader, 10, Duration.ZERO, content -> 4);
+        Content first = resolver.resolve("content-01");
+        assertSame(first, resolver.resolve("content-01"));
+        assertEquals(1, loads.get());
+
+        versions.put("content-01", 1L);
+        Content reloaded = resolver.resolve("content-01");
+        assertNotSame(first, reloaded);
+        assertEquals(2, loads.get());
+
+        resolver.resolve("content-02");
+        resolver.resolve("content-01");
+        resolver.resolve("content-03");
+        assertEquals(2, resolver.size());
+        assertEquals(8, resolver.getWeight());
+        assertSame(reloaded, resolver.resolve("content-01"));
+        assertEquals(4, loads.get());
+
+        assertNull(resolver.resolve("missing-01"));
+        resolver.invalidate("content-01");
+        assertEquals(1, resolver.size());
+    }
+
+    /**
+     * Test of resolveAll method, of class ContentResolver.
+     */
+    @Test
+    public void testResolveAll() throws Exception {
+        System.out.println("resolveAll");
+        Guide guide = new Guide("guide");
+        guide.setContentId("de-DE", "guide-de");
+        Action action = new Action("step-01");
+        action.setContentId("de-DE", "step-de");
+        action.setContentId("en-GB", "step-en");
+        guide.addStep(action);
+        UserRequest userRequest = new UserRequest("step-02");
+        userRequest.setContentId("de-DE", "step-de");
+        Option option = new Option();
+        option.setContentId("de-DE", "option-de");
+        userRequest.addOption(option);
+        Option missing = new Option();
+        missing.setContentId("de-DE", "missing-de");
+        userRequest.addOption(missing);
+        guide.addStep(userRequest);
+
+        ContentResolver resolver = new ContentResolver(loader, 1_000_000);
+        Map<String, Content> contents = resolver.resolveAll(guide, "de-DE");
+        assertEquals(Arrays.asList("guide-de", "step-de", "option-de"), Arrays.asList(contents.keySet().toArray()));
+        assertEquals(3, loads.get());
+        resolver.resolveAll(guide, "de-DE");
+        assertEquals(3, loads.get());
+    }
+
+    /**
+     * Test of fileLoader method, of class ContentResolver.
+     */
+    @Test
+    public void testFileLoader() throws Exception {
+        System.out.println("fileLoader");
+        Path directory = temporaryFolder.newFolder().toPath();
+        Content content = new Content("content-01");
+        content.setTitle("First");
+        Path file = directory.resolve("content-01.json");
+        GuideUtil.writeContent(content, file.toFile(), false);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_000));
+
+        ContentResolver resolver = new ContentResolver(ContentResolver.fileLoader(directory), 1_000_000);
+        Content first = resolver.resolve("content-01");
+        assertEquals("First", first.getTitle());
+        assertSame(first, resolver.resolve("content-01"));
+
+        content.setTitle("Second");
+        GuideUtil.writeContent(content, file.toFile(), false);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(2_000_000));
+        assertEquals("Second", resolver.resolve("content-01").getTitle());
+        assertNull(resolver.resolve("content-02"));
+    }
+}
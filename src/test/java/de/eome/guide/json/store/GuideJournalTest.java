@@ -0,0 +1,189 @@
+package de.eome.guide.json.store;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.eome.guide.json.Action;
+import de.eome.guide.json.Chapter;
+import de.eome.guide.json.Guide;
+import de.eome.guide.json.Option;
+import de.eome.guide.json.UserRequest;
+import de.eome.guide.json.util.GuideCodec;
+import de.eome.guide.json.util.GuideUtil;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class GuideJournalTest {
+    private Guide testGuide;
+    private Path directory;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    public GuideJournalTest() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        directory = temporaryFolder.newFolder().toPath();
+        testGuide = new Guide("test-guide");
+        testGuide.setContentId("de-DE", "content-de");
+        testGuide.addStep(new Action("step-01"));
+    }
+
+    /**
+     * Test of create and open methods, of class GuideJournal.
+     */
+    @Test
+    public void testCreateAndOpen() throws Exception {
+        System.out.println("create/open");
+        try (GuideJournal journal = GuideJournal.create(testGuide, directory, GuideJournal.SyncPolicy.everyWrite())) {
+            testGuide.addCustomTag("tag");
+            testGuide.grantGroupAccess("group-01");
+            testGuide.getStep("step-01").setNext("step-02");
+            testGuide.batch(guide -> {
+                UserRequest userRequest = new UserRequest("step-02");
+                guide.addStep(userRequest);
+                Option option = new Option();
+                userRequest.addOption(option);
+                option.setNext("step-01");
+                option.setContentId("de-DE", "option-de");
+                userRequest.setContentId("de-DE", "request-de");
+            });
+            testGuide.addStep(0, new Chapter("step-00", "other-guide"));
+            testGuide.removeContentId("de-DE");
+            assertEquals(6, journal.getSequence());
+        }
+        List<String> records = Files.readAllLines(directory.resolve("test-guide.journal"));
+        assertEquals(6, records.size());
+
+        try (GuideJournal journal = GuideJournal.open(directory, "test-guide", GuideJournal.SyncPolicy.batched(10))) {
+            Guide loaded = journal.getGuide();
+            assertEquals(withoutLastUpdate(testGuide), withoutLastUpdate(loaded));
+            assertEquals(testGuide.getLastUpdate().toInstant(), loaded.getLastUpdate().toInstant());
+            assertEquals(6, journal.getSequence());
+            loaded.removeStep("step-00");
+        }
+        try (GuideJournal journal = GuideJournal.open(directory, "test-guide", GuideJournal.SyncPolicy.everyWrite())) {
+            assertEquals(-1, journal.getGuide().indexOfStep("step-00"));
+            assertEquals(7, journal.getSequence());
+        }
+    }
+
+    /**
+     * Test of create and open methods with a patch changing fields outside the model, of class GuideJournal.
+     */
+    @Test
+    public void testPatchUnknownField() throws Exception {
+        System.out.println("patch unknown field");
+        try (GuideJournal journal = GuideJournal.create(testGuide, directory, GuideJournal.SyncPolicy.everyWrite())) {
+            GuideUtil.apply(testGuide, (ArrayNode) GuideCodec.getDefault().getMapper().readTree(
+                    "[{\"op\": \"add\", \"path\": \"/custom\", \"value\": {\"level\": 2, \"labels\": [\"a\"]}}]"));
+            assertEquals(1, journal.getSequence());
+        }
+        try (GuideJournal journal = GuideJournal.open(directory, "test-guide", GuideJournal.SyncPolicy.everyWrite())) {
+            assertEquals(2, journal.getGuide().asJson().path("custom").path("level").asInt());
+            assertEquals(withoutLastUpdate(testGuide), withoutLastUpdate(journal.getGuide()));
+            GuideUtil.apply(journal.getGuide(), (ArrayNode) GuideCodec.getDefault().getMapper().readTree(
+                    "[{\"op\": \"remove\", \"path\": \"/custom/labels\"}]"));
+        }
+        try (GuideJournal journal = GuideJournal.open(directory, "test-guide", GuideJournal.SyncPolicy.everyWrite())) {
+            assertTrue(journal.getGuide().asJson().path("custom").path("labels").isMissingNode());
+            assertEquals(2, journal.getGuide().asJson().path("custom").path("level").asInt());
+        }
+    }
+
+    /**
+     * Test of open method with a torn last record, of class GuideJournal.
+     */
+    @Test
+    public void testOpenDiscardsTornRecord() throws Exception {
+        System.out.println("open torn record");
+        try (GuideJournal journal = GuideJournal.create(testGuide, directory, GuideJournal.SyncPolicy.everyWrite())) {
+            testGuide.addCustomTag("tag");
+            assertEquals(1, journal.getSequence());
+        }
+        Path journalFile = directory.resolve("test-guide.journal");
+        Files.write(journalFile, "{\"seq\":2,\"lastUpd".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        try (GuideJournal journal = GuideJournal.open(directory, "test-guide", GuideJournal.SyncPolicy.everyWrite())) {
+            assertEquals(1, journal.getSequence());
+            assertEquals(testGuide.getCustomTags(), journal.getGuide().getCustomTags());
+            journal.getGuide().addCustomTag("after-crash");
+        }
+        assertEquals(2, Files.readAllLines(journalFile).size());
+    }
+
+    /**
+     * Test of compaction, of class GuideJournal.
+     */
+    @Test
+    public void testCompaction() throws Exception {
+        System.out.println("compaction");
+        try (GuideJournal journal = GuideJournal.create(testGuide, directory, GuideJournal.SyncPolicy.interval(java.time.Duration.ofSeconds(1)), 3, Runnable::run, GuideCodec.getDefault())) {
+            for (int i = 2; i <= 8; i++) {
+                testGuide.addStep(new Action("step-0" + i));
+            }
+            assertEquals(7, journal.getSequence());
+        }
+        assertFalse(Files.exists(directory.resolve("test-guide.snapshot-0.json")));
+        assertTrue(Files.exists(directory.resolve("test-guide.snapshot-6.json")));
+        assertEquals(1, Files.readAllLines(directory.resolve("test-guide.journal")).size());
+        try (GuideJournal journal = GuideJournal.open(directory, "test-guide", GuideJournal.SyncPolicy.everyWrite())) {
+            assertEquals(withoutLastUpdate(testGuide), withoutLastUpdate(journal.getGuide()));
+            assertEquals(7, journal.getSequence());
+        }
+
+        Guide replacement = new Guide("test-guide");
+        try (GuideJournal journal = GuideJournal.create(replacement, directory, GuideJournal.SyncPolicy.everyWrite())) {
+            assertEquals(0, journal.getSequence());
+        }
+        assertFalse(Files.exists(directory.resolve("test-guide.snapshot-6.json")));
+        assertEquals(0, Files.size(directory.resolve("test-guide.journal")));
+        try (GuideJournal journal = GuideJournal.open(directory, "test-guide", GuideJournal.SyncPolicy.everyWrite())) {
+            assertTrue(journal.getGuide().getSteps().isEmpty());
+        }
+    }
+
+    /**
+     * Test of sync method after a failed compaction, of class GuideJournal.
+     */
+    @Test
+    public void testCompactionFailure() throws Exception {
+        System.out.println("compaction failure");
+        Path blocked = directory.resolve("test-guide.snapshot-3.json");
+        try (GuideJournal journal = GuideJournal.create(testGuide, directory, GuideJournal.SyncPolicy.everyWrite(), 3, Runnable::run, GuideCodec.getDefault())) {
+            Files.createDirectories(blocked);
+            Files.write(blocked.resolve("file"), new byte[0]);
+            for (int i = 2; i <= 5; i++) {
+                testGuide.addStep(new Action("step-0" + i));
+            }
+            assertEquals(4, journal.getSequence());
+            try {
+                journal.sync();
+                fail("Compaction failure not reported.");
+            } catch (IOException ex) {
+                // expected
+            }
+            journal.sync();
+        }
+        Files.delete(blocked.resolve("file"));
+        Files.delete(blocked);
+        try (GuideJournal journal = GuideJournal.open(directory, "test-guide", GuideJournal.SyncPolicy.everyWrite())) {
+            assertEquals(withoutLastUpdate(testGuide), withoutLastUpdate(journal.getGuide()));
+        }
+    }
+
+    private static ObjectNode withoutLastUpdate(Guide guide) {
+        ObjectNode json = guide.asJson().deepCopy();
+        json.remove("lastUpdate");
+        return json;
+    }
+}
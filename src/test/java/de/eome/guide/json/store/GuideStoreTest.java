@@ -0,0 +1,85 @@
+package de.eome.guide.json.store;
+
+import de.eome.guide.json.Action;
+import de.eome.guide.json.Chapter;
+import de.eome.guide.json.Guide;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class GuideStoreTest {
+    private GuideStore store;
+    private Guide firstGuide;
+    private Guide secondGuide;
+    
+    public GuideStoreTest() {
+    }
+    
+    @Before
+    public void setUp() {
+        store = new GuideStore();
+        firstGuide = new Guide("guide-01");
+        firstGuide.addTypedTag("maintenance");
+        firstGuide.setContentId("de-DE", "content-01");
+        firstGuide.addStep(new Action("step-01"));
+        secondGuide = new Guide("guide-02");
+        secondGuide.addTypedTag("maintenance");
+        Chapter chapter = new Chapter("step-01", "guide-01");
+        chapter.setContentId("de-DE", "content-02");
+        secondGuide.addStep(chapter);
+        store.put(firstGuide);
+        store.put(secondGuide);
+    }
+
+    /**
+     * Test of the find methods, of class GuideStore.
+     */
+    @Test
+    public void testFind() {
+        System.out.println("find");
+        assertEquals(2, store.findByTypedTag("maintenance").size());
+        assertEquals(Collections.emptyList(), store.findByCustomTag("maintenance"));
+        assertEquals(Arrays.asList(firstGuide), store.findByContentId("content-01"));
+        assertEquals(Arrays.asList(secondGuide), store.findByContentId("content-02"));
+        assertEquals(Arrays.asList(secondGuide), store.findByStepType("chapter"));
+        assertEquals(Arrays.asList(firstGuide), store.findByStepType("action"));
+    }
+
+    /**
+     * Test of index updates after guide mutations, of class GuideStore.
+     */
+    @Test
+    public void testIndexUpdatedOnMutation() {
+        System.out.println("index update");
+        firstGuide.removeTypedTag("maintenance");
+        firstGuide.addCustomTag("new");
+        secondGuide.getStep("step-01").setContentId("en-GB", "content-03");
+        firstGuide.addStep(new Chapter("step-02", "guide-02"));
+        assertEquals(Arrays.asList(secondGuide), store.findByTypedTag("maintenance"));
+        assertEquals(Arrays.asList(firstGuide), store.findByCustomTag("new"));
+        assertEquals(Arrays.asList(secondGuide), store.findByContentId("content-03"));
+        assertEquals(2, store.findByStepType("chapter").size());
+    }
+
+    /**
+     * Test of remove and put methods, of class GuideStore.
+     */
+    @Test
+    public void testRemoveAndReplace() {
+        System.out.println("remove/put");
+        assertSame(firstGuide, store.remove("guide-01"));
+        assertNull(store.get("guide-01"));
+        assertEquals(Collections.emptyList(), store.findByContentId("content-01"));
+        firstGuide.addCustomTag("detached");
+        assertEquals(Collections.emptyList(), store.findByCustomTag("detached"));
+        
+        Guide replacement = new Guide("guide-02");
+        store.put(replacement);
+        assertEquals(1, store.size());
+        assertEquals(Collections.emptyList(), store.findByStepType("chapter"));
+        secondGuide.addCustomTag("stale");
+        assertEquals(Collections.emptyList(), store.findByCustomTag("stale"));
+    }
+}
@@ -0,0 +1,83 @@
+package de.eome.guide.json.util;
+
+import de.eome.guide.json.Action;
+import de.eome.guide.json.Chapter;
+import de.eome.guide.json.Guide;
+import de.eome.guide.json.Milestone;
+import de.eome.guide.json.Option;
+import de.eome.guide.json.UserRequest;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class GuideNavigatorTest {
+    private Guide guide;
+
+    public GuideNavigatorTest() {
+    }
+
+    @Before
+    public void setUp() {
+        guide = new Guide("test-guide");
+        guide.addStep(new Action("step-01"));
+        UserRequest userRequest = new UserRequest("step-02");
+        Option skip = new Option();
+        skip.setNext("step-04");
+        userRequest.addOption(skip);
+        userRequest.addOption(new Option());
+        guide.addStep(userRequest);
+        guide.addStep(new Chapter("step-03", "other-guide"));
+        guide.addStep(new Milestone("step-04"));
+    }
+
+    /**
+     * Test of start method, of class GuideNavigator.
+     */
+    @Test
+    public void testStart() {
+        System.out.println("start");
+        GuideNavigator navigator = new GuideNavigator(guide);
+        GuideNavigator.Session session = navigator.start();
+        assertEquals("step-01", session.getStepId());
+        assertEquals(1, session.next());
+        assertTrue(session.isUserRequest());
+        assertEquals(2, session.getOptionCount());
+        try {
+            session.next();
+            fail("Expected IllegalStateException.");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        assertEquals(2, session.select(1));
+        assertEquals("other-guide", session.getTarget());
+        assertEquals(1, session.back());
+        assertEquals(3, session.select(0));
+        assertEquals("milestone", session.getType());
+        assertEquals(-1, session.next());
+        assertTrue(session.isEnded());
+        assertNull(session.getStepId());
+
+        assertTrue(new GuideNavigator(new Guide("empty")).start().isEnded());
+    }
+
+    /**
+     * Test of resume method, of class GuideNavigator.
+     */
+    @Test
+    public void testResume() {
+        System.out.println("resume");
+        GuideNavigator navigator = new GuideNavigator(guide);
+        GuideNavigator.Session session = navigator.resume(2, 1);
+        assertEquals("step-03", session.getStepId());
+        assertEquals(1, session.back());
+
+        guide.removeStep(0);
+        assertEquals("step-02", session.getStepId());
+        try {
+            navigator.resume(4, -1);
+            fail("Expected IllegalArgumentException.");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+}
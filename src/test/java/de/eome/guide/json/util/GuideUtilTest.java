@@ -0,0 +1,362 @@
+package de.eome.guide.json.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.eome.guide.json.Action;
+import de.eome.guide.json.Chapter;
+import de.eome.guide.json.Guide;
+import de.eome.guide.json.Option;
+import de.eome.guide.json.UserRequest;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class GuideUtilTest {
+    private Guide testGuide;
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    public GuideUtilTest() {
+    }
+    
+    @Before
+    public void setUp() {
+        testGuide = new Guide("test-guide");
+        testGuide.setContentId("de-DE", "content-de");
+        testGuide.addCustomTag("customTag");
+        testGuide.grantUserAccess("user-01");
+        Action action = new Action("step-01");
+        action.setNext("step-02");
+        testGuide.addStep(action);
+        UserRequest userRequest = new UserRequest("step-02");
+        Option option = new Option();
+        option.setNext("step-01");
+        userRequest.addOption(option);
+        testGuide.addStep(userRequest);
+    }
+
+    /**
+     * Test of exportGuide and readGuide methods, of class GuideUtil.
+     */
+    @Test
+    public void testExportAndReadGuide() throws Exception {
+        System.out.println("exportGuide/readGuide");
+        String exported = GuideUtil.exportGuide(testGuide, true);
+        Guide result = GuideUtil.readGuide(exported);
+        assertEquals(testGuide.asJson(), result.asJson());
+        assertEquals(2, result.getSteps().size());
+        assertEquals("step-02", result.getStep("step-01").getNext());
+    }
+
+    /**
+     * Test of readGuide method with a custom codec, of class GuideUtil.
+     */
+    @Test
+    public void testReadGuideWithCodec() throws Exception {
+        System.out.println("readGuide with codec");
+        GuideCodec codec = new GuideCodec(new JsonFactory().enable(JsonParser.Feature.ALLOW_COMMENTS));
+        String exported = GuideUtil.exportGuide(testGuide, true, codec);
+        Guide result = GuideUtil.readGuide("/* comment */" + exported, codec);
+        assertEquals(testGuide.asJson(), result.asJson());
+    }
+
+    /**
+     * Test of readGuide method, of class GuideUtil, comparing the streaming reader with the tree based constructor.
+     */
+    @Test
+    public void testReadGuideMatchesTreeModel() throws Exception {
+        System.out.println("readGuide streaming");
+        String exported = GuideUtil.exportGuide(testGuide, false);
+        Guide streamed = GuideUtil.readGuide(exported);
+        Guide tree = new Guide(JsonUtil.readJson(exported));
+        assertEquals(tree.asJson(), streamed.asJson());
+        assertEquals(tree.getContentIds(), streamed.getContentIds());
+        assertEquals(tree.getCustomTags(), streamed.getCustomTags());
+        assertTrue(streamed.hasUserAccess("user-01"));
+        UserRequest userRequest = (UserRequest) streamed.getStep("step-02");
+        assertEquals(1, userRequest.getOptions().size());
+        assertEquals("step-01", userRequest.getOptions().get(0).getNext());
+        assertSame(streamed, userRequest.getParent());
+        assertSame(userRequest, userRequest.getOptions().get(0).getParent());
+    }
+
+    /**
+     * Test of readGuide method with invalid input, of class GuideUtil.
+     */
+    @Test
+    public void testReadGuideInvalid() {
+        System.out.println("readGuide invalid");
+        String[] invalidGuides = {
+            "[]",
+            "{\"content\": {}}",
+            "{\"id\": 1}",
+            "{\"id\": \"g\", \"tags\": [\"noMarker\"]}",
+            "{\"id\": \"g\", \"steps\": [{\"id\": \"s\"}]}",
+            "{\"id\": \"g\", \"steps\": [{\"id\": \"s\", \"type\": \"chapter\"}]}",
+            "{\"id\": \"g\", \"steps\": [{\"id\": \"s\", \"type\": \"branch\"}]}",
+            "{\"id\": \"g\", \"steps\": [{\"id\": \"s\", \"type\": \"action\", \"content\": {\"de-DE\": 1}}]}",
+            "{\"id\": \"g\""
+        };
+        for (String invalidGuide : invalidGuides) {
+            try {
+                GuideUtil.readGuide(invalidGuide);
+                fail("Accepted invalid guide: " + invalidGuide);
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Test of writeGuide methods for streams and channels, of class GuideUtil.
+     */
+    @Test
+    public void testWriteGuideToStreamAndChannel() throws Exception {
+        System.out.println("writeGuide stream/channel");
+        byte[] expResult = GuideUtil.exportGuide(testGuide, true).getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GuideUtil.writeGuide(testGuide, out, true);
+        assertArrayEquals(expResult, out.toByteArray());
+        
+        out = new ByteArrayOutputStream();
+        GuideUtil.writeGuide(testGuide, Channels.newChannel(out), ByteBuffer.allocate(16), true);
+        assertArrayEquals(expResult, out.toByteArray());
+    }
+
+    /**
+     * Test of exportGuide method in compact mode, of class GuideUtil.
+     */
+    @Test
+    public void testExportGuideCompact() throws Exception {
+        System.out.println("exportGuide compact");
+        String compact = GuideUtil.exportGuide(testGuide, false);
+        assertFalse(compact.contains("\n"));
+        assertTrue(compact.length() < GuideUtil.exportGuide(testGuide, true).length());
+        assertEquals(testGuide.asJson(), GuideUtil.readGuide(compact).asJson());
+    }
+
+    /**
+     * Test of exportGuideCanonical method, of class GuideUtil.
+     */
+    @Test
+    public void testExportGuideCanonical() throws Exception {
+        System.out.println("exportGuideCanonical");
+        Guide other = GuideUtil.readGuide(GuideUtil.exportGuide(testGuide, true));
+        other.asJson().remove("id");
+        other.asJson().put("id", testGuide.getId());
+        assertNotEquals(GuideUtil.exportGuide(testGuide, false), GuideUtil.exportGuide(other, false));
+        assertEquals(GuideUtil.exportGuideCanonical(testGuide), GuideUtil.exportGuideCanonical(other));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GuideUtil.writeGuideCanonical(other, out);
+        assertEquals(GuideUtil.exportGuideCanonical(testGuide), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Test of readGuides methods, of class GuideUtil.
+     */
+    @Test
+    public void testReadGuides() throws Exception {
+        System.out.println("readGuides");
+        File directory = temporaryFolder.getRoot();
+        for (int i = 0; i < 10; i++) {
+            Guide guide = new Guide("guide-" + i);
+            guide.addStep(new Action("step-01"));
+            GuideUtil.writeGruide(guide, new File(directory, "guide-" + i + ".json"), false);
+        }
+        Files.write(new File(directory, "broken.json").toPath(), "{\"id\": ".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(directory, "ignored.txt").toPath(), "no guide".getBytes(StandardCharsets.UTF_8));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            BulkReadResult<Guide> result = GuideUtil.readGuides(directory.toPath(), executor);
+            assertEquals(10, result.getReadCount());
+            assertEquals(10, result.getResults().size());
+            assertEquals("guide-3", result.getResults().get(directory.toPath().resolve("guide-3.json")).getId());
+            assertEquals(1, result.getErrors().size());
+            assertTrue(result.getErrors().containsKey(directory.toPath().resolve("broken.json")));
+            
+            Set<String> ids = ConcurrentHashMap.newKeySet();
+            result = GuideUtil.readGuides(directory.toPath(), executor, 2, guide -> ids.add(guide.getId()));
+            assertEquals(10, result.getReadCount());
+            assertTrue(result.getResults().isEmpty());
+            assertEquals(10, ids.size());
+            assertTrue(result.hasErrors());
+            
+            result = GuideUtil.readGuides(directory.toPath(), executor, 2, guide -> {
+                if (guide.getId().equals("guide-5")) {
+                    throw new StackOverflowError();
+                }
+            });
+            assertEquals(9, result.getReadCount());
+            assertEquals(2, result.getErrors().size());
+            assertTrue(result.getErrors().get(directory.toPath().resolve("guide-5.json")).getCause() instanceof StackOverflowError);
+            
+            try {
+                GuideUtil.readGuides(directory.toPath(), Runnable::run, 2, guide -> {
+                    throw new OutOfMemoryError();
+                });
+                fail("OutOfMemoryError not propagated.");
+            } catch (OutOfMemoryError ex) {
+                // expected
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test of writeGuides and streamGuides methods, of class GuideUtil.
+     */
+    @Test
+    public void testWriteAndStreamGuides() throws Exception {
+        System.out.println("writeGuides/streamGuides");
+        List<Guide> guides = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            guides.add(new Guide("guide-" + i));
+        }
+        guides.add(testGuide);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GuideUtil.writeGuides(guides.parallelStream(), out);
+        List<String> ids;
+        try (Stream<Guide> stream = GuideUtil.streamGuides(new ByteArrayInputStream(out.toByteArray()))) {
+            ids = stream.map(Guide::getId).collect(Collectors.toList());
+        }
+        assertEquals(guides.stream().map(Guide::getId).collect(Collectors.toList()), ids);
+        
+        String array = "[" + GuideUtil.exportGuide(testGuide, true) + ", {\"id\": \"second\"}]";
+        try (Stream<Guide> stream = GuideUtil.streamGuides(new ByteArrayInputStream(array.getBytes(StandardCharsets.UTF_8)))) {
+            List<Guide> result = stream.collect(Collectors.toList());
+            assertEquals(2, result.size());
+            assertEquals(testGuide.asJson(), result.get(0).asJson());
+            assertEquals("second", result.get(1).getId());
+        }
+        try (Stream<Guide> stream = GuideUtil.streamGuides(new ByteArrayInputStream(new byte[0]))) {
+            assertEquals(0, stream.count());
+        }
+    }
+
+    /**
+     * Test of encodeGuide and decodeGuide methods, of class GuideUtil.
+     */
+    @Test
+    public void testEncodeAndDecodeGuide() throws Exception {
+        System.out.println("encodeGuide/decodeGuide");
+        int jsonSize = GuideUtil.encodeGuide(testGuide, DataFormat.JSON).length;
+        for (DataFormat format : DataFormat.values()) {
+            byte[] encoded = GuideUtil.encodeGuide(testGuide, format);
+            assertEquals(testGuide.asJson(), GuideUtil.decodeGuide(encoded).asJson());
+            assertEquals(testGuide.asJson(), GuideUtil.decodeGuide(new ByteArrayInputStream(encoded)).asJson());
+            File file = temporaryFolder.newFile("guide." + format);
+            Files.write(file.toPath(), encoded);
+            assertEquals(testGuide.asJson(), GuideUtil.readGuide(file).asJson());
+            if (format != DataFormat.JSON) {
+                assertTrue(encoded.length < jsonSize);
+            }
+        }
+        try {
+            GuideUtil.decodeGuide(new byte[] {0x00, 0x01});
+            fail("Accepted unknown encoding.");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Test of readGuide method with JSON not recognized by the format detection, of class GuideUtil.
+     */
+    @Test
+    public void testReadGuideUndetectedJson() throws Exception {
+        System.out.println("readGuide undetected JSON");
+        StringBuilder whitespace = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            whitespace.append('\n');
+        }
+        File paddedFile = temporaryFolder.newFile("padded.json");
+        Files.write(paddedFile.toPath(), (whitespace + "{\"id\":\"g\"}").getBytes(StandardCharsets.UTF_8));
+        assertEquals("g", GuideUtil.readGuide(paddedFile).getId());
+        assertEquals("g", GuideUtil.decodeGuide(Files.readAllBytes(paddedFile.toPath())).getId());
+
+        GuideCodec codec = new GuideCodec(new JsonFactory().enable(JsonParser.Feature.ALLOW_COMMENTS));
+        File commentedFile = temporaryFolder.newFile("commented.json");
+        Files.write(commentedFile.toPath(), ("// comment\n" + GuideUtil.exportGuide(testGuide, true, codec)).getBytes(StandardCharsets.UTF_8));
+        assertEquals(testGuide.asJson(), GuideUtil.readGuide(commentedFile, codec).asJson());
+        assertEquals(testGuide.asJson(), GuideUtil.decodeGuide(new ByteArrayInputStream(Files.readAllBytes(commentedFile.toPath())), codec).asJson());
+    }
+
+    /**
+     * Test of diff and apply methods, of class GuideUtil.
+     */
+    @Test
+    public void testDiffAndApply() throws Exception {
+        System.out.println("diff/apply");
+        for (int i = 3; i <= 8; i++) {
+            testGuide.addStep(new Action("step-0" + i));
+        }
+        Guide target = GuideUtil.readGuide(GuideUtil.exportGuide(testGuide, false));
+        assertEquals(0, GuideUtil.diff(testGuide, target).size());
+        
+        target.addStep(0, target.removeStep("step-08"));
+        target.removeStep("step-04");
+        target.addStep(3, new Chapter("step-09", "other-guide"));
+        target.getStep("step-01").setNext("step-09");
+        ((UserRequest) target.getStep("step-02")).getOptions().get(0).setContentId("en-GB", "option-en");
+        target.getStep("step-05").setContentId("de-DE", "step-05-de");
+        target.addTypedTag("typedTag");
+        target.revokeUserAccess("user-01");
+        target.grantGroupAccess("group-01");
+        target.removeContentId("de-DE");
+        
+        ArrayNode patch = GuideUtil.diff(testGuide, target);
+        assertEquals(1, count(patch, "move", "/steps/"));
+        assertEquals(1, count(patch, "add", "/steps/"));
+        assertEquals(1, count(patch, "remove", "/steps/"));
+        
+        UserRequest userRequest = (UserRequest) testGuide.getStep("step-02");
+        GuideUtil.apply(testGuide, patch);
+        assertEquals(withoutLastUpdate(target), withoutLastUpdate(testGuide));
+        assertSame(userRequest, testGuide.getStep("step-02"));
+        assertEquals("option-en", userRequest.getOptions().get(0).getContentId("en-GB"));
+        assertEquals(0, testGuide.indexOfStep("step-08"));
+        assertNull(testGuide.getStep("step-04"));
+        assertTrue(testGuide.getStep("step-09") instanceof Chapter);
+        assertTrue(testGuide.hasGroupAccess("group-01"));
+        assertFalse(testGuide.hasUserAccess("user-01"));
+        assertEquals(0, GuideUtil.diff(testGuide, target).size());
+    }
+    
+    private static int count(ArrayNode patch, String op, String pathPrefix) {
+        int count = 0;
+        for (int i = 0; i < patch.size(); i++) {
+            String path = patch.get(i).path("path").asText();
+            if (patch.get(i).path("op").asText().equals(op) && path.startsWith(pathPrefix) && path.lastIndexOf('/') == pathPrefix.length() - 1) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    private static ObjectNode withoutLastUpdate(Guide guide) {
+        ObjectNode json = guide.asJson().deepCopy();
+        json.remove("lastUpdate");
+        return json;
+    }
+}
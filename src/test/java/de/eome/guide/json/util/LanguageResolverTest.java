@@ -0,0 +1,78 @@
+package de.eome.guide.json.util;
+
+import de.eome.guide.json.Action;
+import de.eome.guide.json.Guide;
+import de.eome.guide.json.Option;
+import de.eome.guide.json.UserRequest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LanguageResolverTest {
+    private LanguageResolver resolver;
+    
+    public LanguageResolverTest() {
+    }
+    
+    @Before
+    public void setUp() {
+        Map<String, List<String>> fallbacks = new HashMap<>();
+        fallbacks.put("de-AT", Arrays.asList("de-DE"));
+        fallbacks.put("de-CH", Arrays.asList("de-DE"));
+        fallbacks.put("de-DE", Arrays.asList("de"));
+        fallbacks.put("de", Arrays.asList("de-DE"));
+        resolver = new LanguageResolver(fallbacks, Collections.singletonList("en-GB"));
+    }
+
+    /**
+     * Test of getChain method, of class LanguageResolver.
+     */
+    @Test
+    public void testGetChain() {
+        System.out.println("getChain");
+        assertEquals(Arrays.asList("de-AT", "de-DE", "de", "en-GB"), resolver.getChain("de-AT"));
+        assertEquals(Arrays.asList("fr-FR", "en-GB"), resolver.getChain("fr-FR"));
+        assertEquals(Arrays.asList("en-GB"), resolver.getChain("en-GB"));
+    }
+
+    /**
+     * Test of resolve method, of class LanguageResolver.
+     */
+    @Test
+    public void testResolveGuide() {
+        System.out.println("resolve");
+        Guide guide = new Guide("guide");
+        guide.setContentId("en-GB", "guide-en");
+        guide.setContentId("de", "guide-de");
+        Action action = new Action("step-01");
+        action.setContentId("de-AT", "step-at");
+        action.setContentId("de-DE", "step-de");
+        guide.addStep(action);
+        UserRequest userRequest = new UserRequest("step-02");
+        Option option = new Option();
+        option.setContentId("en-GB", "option-en");
+        userRequest.addOption(option);
+        guide.addStep(userRequest);
+        
+        LanguageResolver.ResolvedContentIds resolved = resolver.resolve(guide, "de-AT");
+        assertEquals("guide-de", resolved.getGuideContentId());
+        assertEquals("step-at", resolved.getStepContentId(0));
+        assertNull(resolved.getStepContentId("step-02"));
+        assertEquals("option-en", resolved.getOptionContentId(1, 0));
+        assertSame(resolved, resolver.resolve(guide, "de-AT"));
+        assertEquals("step-de", resolver.resolve(guide, "de-CH").getStepContentId("step-01"));
+        assertEquals("step-de", resolver.resolve(action, "de-CH"));
+        
+        option.setContentId("de-DE", "option-de");
+        LanguageResolver.ResolvedContentIds updated = resolver.resolve(guide, "de-AT");
+        assertNotSame(resolved, updated);
+        assertEquals("option-de", updated.getOptionContentId(1, 0));
+        guide.addCustomTag("tag");
+        assertSame(updated, resolver.resolve(guide, "de-AT"));
+    }
+}
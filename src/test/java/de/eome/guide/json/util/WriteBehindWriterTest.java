@@ -0,0 +1,91 @@
+package de.eome.guide.json.util;
+
+import de.eome.guide.json.Action;
+import de.eome.guide.json.Content;
+import de.eome.guide.json.Guide;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class WriteBehindWriterTest {
+    private Path directory;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    public WriteBehindWriterTest() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        directory = temporaryFolder.newFolder().toPath();
+    }
+
+    /**
+     * Test of save method, of class WriteBehindWriter.
+     */
+    @Test
+    public void testSaveCoalesces() throws Exception {
+        System.out.println("save");
+        Guide guide = new Guide("test-guide");
+        try (WriteBehindWriter writer = new WriteBehindWriter(directory, Duration.ofMinutes(1), false)) {
+            CompletableFuture<Path> first = writer.save(guide);
+            guide.addStep(new Action("step-01"));
+            CompletableFuture<Path> second = writer.save(guide);
+            assertSame(first, second);
+            assertFalse(first.isDone());
+            assertFalse(Files.exists(directory.resolve("test-guide.json")));
+
+            writer.flush().get(10, TimeUnit.SECONDS);
+            Path file = first.get();
+            assertEquals(directory.resolve("test-guide.json"), file);
+            assertEquals(1, GuideUtil.readGuide(file.toFile()).getSteps().size());
+
+            Content content = new Content("test-content");
+            content.setTitle("Title");
+            CompletableFuture<Path> contentSave = writer.save(content);
+            assertNotSame(first, contentSave);
+        }
+        assertEquals("Title", GuideUtil.readContent(directory.resolve("test-content.json").toFile()).getTitle());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    /**
+     * Test of save method after close, of class WriteBehindWriter.
+     */
+    @Test
+    public void testSaveAfterClose() throws Exception {
+        System.out.println("save after close");
+        WriteBehindWriter writer = new WriteBehindWriter(directory, Duration.ZERO, true);
+        writer.close();
+        assertTrue(writer.save(new Guide("test-guide")).isCompletedExceptionally());
+    }
+
+    /**
+     * Test of writeJson method, of class JsonUtil.
+     */
+    @Test
+    public void testWriteJsonReplacesFile() throws Exception {
+        System.out.println("writeJson");
+        File file = directory.resolve("test-guide.json").toFile();
+        Guide guide = new Guide("test-guide");
+        GuideUtil.writeGruide(guide, file, true);
+        guide.addStep(new Action("step-01"));
+        GuideUtil.writeGruide(guide, file, false);
+        assertEquals(1, GuideUtil.readGuide(file).getSteps().size());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+}